@@ -0,0 +1,122 @@
+package zone.dragon.dropwizard.cors;
+
+import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+
+/**
+ * Resources used by the benchmarks, covering class-level, method-level, and resource locator annotations
+ */
+public final class BenchmarkResources {
+    private BenchmarkResources() {}
+
+    @Path("simple")
+    @CorsAllowOrigins({
+        "https://app.example.com",
+        "https://admin.example.com",
+        "https://beta.example.com",
+        "https://www.example.com",
+        "https://app.example.org",
+        "https://admin.example.org",
+        "https://beta.example.org",
+        "https://www.example.org",
+        "https://app.example.net",
+        "https://admin.example.net",
+        "https://beta.example.net",
+        "https://www.example.net",
+        "https://app.example.io",
+        "https://admin.example.io",
+        "https://beta.example.io",
+        "https://www.example.io"
+    })
+    @CorsMaxAge(600)
+    public static class SimpleResource {
+        @GET
+        @CorsExposeHeaders({"X-Request-Id", "X-Trace-Id"})
+        public String get() {
+            return "get";
+        }
+
+        @PUT
+        @CorsAllowHeaders({"X-Request-Id", "Authorization", "Content-Type"})
+        @CorsAllowCredentials
+        public String put() {
+            return "put";
+        }
+
+        @DELETE
+        public String delete() {
+            return "delete";
+        }
+
+        @OPTIONS
+        public String options() {
+            return "options";
+        }
+    }
+
+    @Path("exposeAll")
+    @CorsAllowOrigins
+    public static class ExposeAllResource {
+        @GET
+        @CorsExposeHeaders
+        public String get() {
+            return "get";
+        }
+    }
+
+    @Path("deep")
+    @CorsAllowOrigins
+    public static class DeepResource {
+        @Path("1")
+        @CorsMaxAge(60)
+        public Level1 getLevel1() {
+            return new Level1();
+        }
+    }
+
+    public static class Level1 {
+        @Path("2")
+        public Level2 getLevel2() {
+            return new Level2();
+        }
+    }
+
+    public static class Level2 {
+        @Path("3")
+        @CorsExposeHeaders({"X-Request-Id"})
+        public Level3 getLevel3() {
+            return new Level3();
+        }
+    }
+
+    public static class Level3 {
+        @Path("4")
+        public Level4 getLevel4() {
+            return new Level4();
+        }
+    }
+
+    public static class Level4 {
+        @Path("5")
+        @CorsAllowCredentials
+        public Leaf getLeaf() {
+            return new Leaf();
+        }
+    }
+
+    public static class Leaf {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import zone.dragon.dropwizard.cors.BenchmarkResources.DeepResource;
+import zone.dragon.dropwizard.cors.BenchmarkResources.ExposeAllResource;
+import zone.dragon.dropwizard.cors.BenchmarkResources.Leaf;
+import zone.dragon.dropwizard.cors.BenchmarkResources.Level1;
+import zone.dragon.dropwizard.cors.BenchmarkResources.Level2;
+import zone.dragon.dropwizard.cors.BenchmarkResources.Level3;
+import zone.dragon.dropwizard.cors.BenchmarkResources.Level4;
+import zone.dragon.dropwizard.cors.BenchmarkResources.SimpleResource;
+
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_MODE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_SITE;
+
+/**
+ * Benchmarks {@link CorsResponseFilter#filter} for each of its main paths; Run through {@link BenchmarkRunner} to also report the bytes
+ * allocated per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorsResponseFilterBenchmark {
+    private static final String ALLOWED_ORIGIN = "https://www.example.io";
+    private static final String DENIED_ORIGIN  = "https://evil.example.com";
+
+    private FilterFixture noOrigin;
+    private FilterFixture sameOrigin;
+    private FilterFixture allowedOrigin;
+    private FilterFixture deniedOrigin;
+    private FilterFixture preflight;
+    private FilterFixture cachedPreflight;
+    private FilterFixture deepLocators;
+    private FilterFixture exposeAll;
+
+    @Setup
+    public void setup() {
+        Resource simple    = Resource.from(SimpleResource.class);
+        Resource exposeAll = Resource.from(ExposeAllResource.class);
+        Resource deep      = Resource.from(DeepResource.class);
+        CorsPolicyRegistry registry = new CorsPolicyRegistry();
+        registry.compile(new ResourceModel.Builder(false).addResource(simple).addResource(exposeAll).addResource(deep).build());
+
+        noOrigin = FilterFixture.of(
+            registry,
+            HttpMethod.GET,
+            ImmutableMap.of(),
+            ImmutableMap.of(),
+            ImmutableList.of(),
+            findMethod(simple, HttpMethod.GET),
+            simple
+        );
+        sameOrigin = FilterFixture.of(
+            registry,
+            HttpMethod.GET,
+            ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN, SEC_FETCH_SITE, "same-origin", SEC_FETCH_MODE, "cors"),
+            ImmutableMap.of(),
+            ImmutableList.of(),
+            findMethod(simple, HttpMethod.GET),
+            simple
+        );
+        allowedOrigin = FilterFixture.of(
+            registry,
+            HttpMethod.GET,
+            ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN),
+            ImmutableMap.of(),
+            ImmutableList.of(),
+            findMethod(simple, HttpMethod.GET),
+            simple
+        );
+        deniedOrigin = FilterFixture.of(
+            registry,
+            HttpMethod.GET,
+            ImmutableMap.of(HttpHeaders.ORIGIN, DENIED_ORIGIN),
+            ImmutableMap.of(),
+            ImmutableList.of(),
+            findMethod(simple, HttpMethod.GET),
+            simple
+        );
+        preflight = FilterFixture.of(
+            registry,
+            HttpMethod.OPTIONS,
+            ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN, REQUEST_METHOD, HttpMethod.PUT, REQUEST_HEADERS, "authorization,content-type"),
+            ImmutableMap.of(),
+            ImmutableList.of(),
+            findMethod(simple, HttpMethod.OPTIONS),
+            simple
+        );
+        cachedPreflight = FilterFixture.of(
+            registry,
+            CorsPreflightCache.of(1_000),
+            HttpMethod.OPTIONS,
+            ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN, REQUEST_METHOD, HttpMethod.PUT, REQUEST_HEADERS, "authorization,content-type"),
+            ImmutableMap.of(),
+            ImmutableList.of(),
+            findMethod(simple, HttpMethod.OPTIONS),
+            simple
+        );
+        exposeAll = FilterFixture.of(
+            registry,
+            HttpMethod.GET,
+            ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN),
+            ImmutableMap.of(
+                HttpHeaders.CONTENT_TYPE, "application/json",
+                HttpHeaders.ETAG, "\"abc\"",
+                "X-Request-Id", "1234",
+                "X-Trace-Id", "5678"
+            ),
+            ImmutableList.of(),
+            findMethod(exposeAll, HttpMethod.GET),
+            exposeAll
+        );
+        // Locators are ordered from the closest to the resource method to the furthest
+        Resource leaf = Resource.from(Leaf.class);
+        List<ResourceMethod> locators = ImmutableList.of(
+            findLocator(Resource.from(Level4.class)),
+            findLocator(Resource.from(Level3.class)),
+            findLocator(Resource.from(Level2.class)),
+            findLocator(Resource.from(Level1.class)),
+            findLocator(deep)
+        );
+        deepLocators = FilterFixture.of(
+            registry,
+            HttpMethod.GET,
+            ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN),
+            ImmutableMap.of(),
+            locators,
+            findMethod(leaf, HttpMethod.GET),
+            leaf
+        );
+    }
+
+    private static ResourceMethod findMethod(Resource resource, String httpMethod) {
+        return resource
+            .getResourceMethods()
+            .stream()
+            .filter(method -> method.getHttpMethod().equals(httpMethod))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException(httpMethod + " not found on " + resource));
+    }
+
+    private static ResourceMethod findLocator(Resource resource) {
+        return resource.getChildResources().get(0).getResourceLocator();
+    }
+
+    @Benchmark
+    public int noOrigin() throws IOException {
+        return noOrigin.run();
+    }
+
+    @Benchmark
+    public int sameOrigin() throws IOException {
+        return sameOrigin.run();
+    }
+
+    @Benchmark
+    public int allowedOrigin() throws IOException {
+        return allowedOrigin.run();
+    }
+
+    @Benchmark
+    public int deniedOrigin() throws IOException {
+        return deniedOrigin.run();
+    }
+
+    @Benchmark
+    public int preflight() throws IOException {
+        return preflight.run();
+    }
+
+    @Benchmark
+    public int cachedPreflight() throws IOException {
+        return cachedPreflight.run();
+    }
+
+    @Benchmark
+    public int deepLocators() throws IOException {
+        return deepLocators.run();
+    }
+
+    @Benchmark
+    public int exposeAll() throws IOException {
+        return exposeAll.run();
+    }
+}
@@ -0,0 +1,77 @@
+package zone.dragon.dropwizard.cors;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Records request latencies for a single client thread; Recorders from all threads are merged with {@link #merge(Collection)} once
+ * the run is over, so recording never contends between threads.
+ */
+final class LatencyRecorder {
+    private long[] latencies = new long[1 << 16];
+    private int    count;
+    private int    errors;
+
+    /**
+     * Records the latency of a successful request
+     */
+    void record(long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+    /**
+     * Records a failed request
+     */
+    void error() {
+        errors++;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Merges the latencies of several recorders
+     *
+     * @return All recorded latencies, sorted in ascending order
+     */
+    static long[] merge(Collection<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+        long[] merged = new long[total];
+        int    offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Looks up a percentile in sorted latencies
+     *
+     * @param sorted
+     *     Latencies sorted in ascending order
+     * @param percentile
+     *     Percentile, between {@code 0} and {@code 100}
+     *
+     * @return Latency at the percentile, or {@code 0} if there are none
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,243 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Configuration;
+import io.dropwizard.jetty.HttpConnectorFactory;
+import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.testing.DropwizardTestSupport;
+import lombok.RequiredArgsConstructor;
+
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+/**
+ * End-to-end load test that starts the {@link LoadTestApp} on an embedded Jetty server, drives a mix of standard and pre-flight CORS
+ * requests at it from many client threads over localhost, and reports throughput and p50/p99/p999 latency. The same traffic is first run
+ * against the application without the {@link CorsBundle} to measure a baseline, and the run fails (exits with status {@code 1}) if the
+ * bundle adds more than the budgeted overhead to the p99 latency or takes more than the budget off the throughput.
+ * <p>
+ * Arguments, all optional: {@code --threads=32 --warmup=10 --duration=30 --budget=15}, where durations are in seconds and the budget is a
+ * percentage. Each client thread uses a fixed random seed, so the request mix is the same for every run.
+ */
+public final class LoadTest {
+    private static final String ALLOWED_ORIGIN = "https://app.example.com";
+    private static final String DENIED_ORIGIN  = "https://evil.example.com";
+
+    /**
+     * Request mix, with each request repeated according to its weight
+     */
+    private static final ImmutableList<RequestSpec> MIX = ImmutableList.<RequestSpec>builder()
+        .addAll(weight(40, new RequestSpec(HttpMethod.GET, "/simple", ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN))))
+        .addAll(weight(10, new RequestSpec(HttpMethod.GET, "/simple", ImmutableMap.of(HttpHeaders.ORIGIN, DENIED_ORIGIN))))
+        .addAll(weight(20, new RequestSpec(HttpMethod.OPTIONS, "/simple", ImmutableMap.of(
+            HttpHeaders.ORIGIN, ALLOWED_ORIGIN,
+            REQUEST_METHOD, HttpMethod.PUT,
+            REQUEST_HEADERS, "authorization,content-type"
+        ))))
+        .addAll(weight(15, new RequestSpec(HttpMethod.GET, "/deep/1/2/3/4/5", ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN))))
+        .addAll(weight(5, new RequestSpec(HttpMethod.OPTIONS, "/deep/1/2/3/4/5", ImmutableMap.of(
+            HttpHeaders.ORIGIN, ALLOWED_ORIGIN,
+            REQUEST_METHOD, HttpMethod.GET
+        ))))
+        .addAll(weight(10, new RequestSpec(HttpMethod.GET, "/exposeAll", ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN))))
+        .build();
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        int    threads  = intArg(args, "threads", 32);
+        int    warmup   = intArg(args, "warmup", 10);
+        int    duration = intArg(args, "duration", 30);
+        double budget   = intArg(args, "budget", 15);
+        // Origin is a restricted header for HttpURLConnection, and every client thread needs its own keep-alive connection
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+        System.setProperty("http.maxConnections", Integer.toString(threads));
+
+        Result baseline = run(LoadTestApp.Baseline.class, threads, warmup, duration);
+        Result cors     = run(LoadTestApp.Cors.class, threads, warmup, duration);
+        System.out.println();
+        System.out.println(Result.HEADER);
+        System.out.println(baseline.format("baseline"));
+        System.out.println(cors.format("cors"));
+
+        double p99Overhead    = percentChange(baseline.p99, cors.p99);
+        double throughputDrop = -percentChange(baseline.throughput, cors.throughput);
+        System.out.printf("%np99 overhead: %.1f%%, throughput drop: %.1f%%, budget: %.1f%%%n", p99Overhead, throughputDrop, budget);
+        if (cors.errors > 0 || p99Overhead > budget || throughputDrop > budget) {
+            System.out.println("FAILED: the CORS bundle is over its overhead budget");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    private static Result run(Class<? extends LoadTestApp> appClass, int threads, int warmup, int duration) throws Exception {
+        // Listen on ephemeral ports
+        Configuration        configuration = new Configuration();
+        DefaultServerFactory serverFactory = (DefaultServerFactory) configuration.getServerFactory();
+        ((HttpConnectorFactory) serverFactory.getApplicationConnectors().get(0)).setPort(0);
+        ((HttpConnectorFactory) serverFactory.getAdminConnectors().get(0)).setPort(0);
+        DropwizardTestSupport<Configuration> support = new DropwizardTestSupport<>(appClass, configuration);
+        support.before();
+        try {
+            String baseUrl = "http://localhost:" + support.getLocalPort();
+            System.out.printf("%s: warming up for %ds%n", appClass.getSimpleName(), warmup);
+            drive(baseUrl, threads, warmup);
+            System.out.printf("%s: measuring for %ds%n", appClass.getSimpleName(), duration);
+            return drive(baseUrl, threads, duration);
+        } finally {
+            support.after();
+        }
+    }
+
+    private static Result drive(String baseUrl, int threads, int seconds) throws InterruptedException {
+        List<LatencyRecorder> recorders = new ArrayList<>(threads);
+        List<Thread>          workers   = new ArrayList<>(threads);
+        CountDownLatch        start     = new CountDownLatch(1);
+        long[]                deadline  = new long[1];
+        for (int i = 0; i < threads; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            Random          random   = new Random(i);
+            recorders.add(recorder);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (System.nanoTime() < deadline[0]) {
+                    RequestSpec request = MIX.get(random.nextInt(MIX.size()));
+                    long        begin   = System.nanoTime();
+                    try {
+                        request.send(baseUrl);
+                        recorder.record(System.nanoTime() - begin);
+                    } catch (IOException e) {
+                        recorder.error();
+                    }
+                }
+            }, "load-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new Result(recorders, System.nanoTime() - begin);
+    }
+
+    private static double percentChange(double from, double to) {
+        return from == 0 ? 0 : (to - from) / from * 100;
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return Integer.parseInt(arg.substring(prefix.length()));
+            }
+        }
+        return defaultValue;
+    }
+
+    private static List<RequestSpec> weight(int weight, RequestSpec request) {
+        List<RequestSpec> weighted = new ArrayList<>(weight);
+        for (int i = 0; i < weight; i++) {
+            weighted.add(request);
+        }
+        return weighted;
+    }
+
+    /**
+     * A request in the mix
+     */
+    @RequiredArgsConstructor
+    private static final class RequestSpec {
+        private final String              method;
+        private final String              path;
+        private final Map<String, String> headers;
+
+        void send(String baseUrl) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            headers.forEach(connection::setRequestProperty);
+            int status = connection.getResponseCode();
+            // Drain the body so that the connection is returned to the keep-alive cache
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (body != null) {
+                    ByteStreams.exhaust(body);
+                }
+            }
+            if (status >= 400) {
+                throw new IOException(method + " " + path + " returned " + status);
+            }
+        }
+    }
+
+    /**
+     * Throughput and latency of a measured run
+     */
+    private static final class Result {
+        static final String HEADER = String.format(
+            "%-10s %10s %8s %12s %10s %10s %10s",
+            "app",
+            "requests",
+            "errors",
+            "req/s",
+            "p50 (us)",
+            "p99 (us)",
+            "p999 (us)"
+        );
+
+        final long   requests;
+        final long   errors;
+        final double throughput;
+        final long   p50;
+        final long   p99;
+        final long   p999;
+
+        Result(List<LatencyRecorder> recorders, long elapsedNanos) {
+            long[] sorted = LatencyRecorder.merge(recorders);
+            long   errors = 0;
+            for (LatencyRecorder recorder : recorders) {
+                errors += recorder.getErrors();
+            }
+            this.requests = sorted.length;
+            this.errors = errors;
+            this.throughput = sorted.length / (elapsedNanos / 1e9);
+            this.p50 = LatencyRecorder.percentile(sorted, 50);
+            this.p99 = LatencyRecorder.percentile(sorted, 99);
+            this.p999 = LatencyRecorder.percentile(sorted, 99.9);
+        }
+
+        String format(String app) {
+            return String.format(
+                "%-10s %10d %8d %12.0f %10d %10d %10d",
+                app,
+                requests,
+                errors,
+                throughput,
+                TimeUnit.NANOSECONDS.toMicros(p50),
+                TimeUnit.NANOSECONDS.toMicros(p99),
+                TimeUnit.NANOSECONDS.toMicros(p999)
+            );
+        }
+    }
+}
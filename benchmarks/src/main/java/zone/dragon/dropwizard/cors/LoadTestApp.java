@@ -0,0 +1,53 @@
+package zone.dragon.dropwizard.cors;
+
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import zone.dragon.dropwizard.cors.BenchmarkResources.DeepResource;
+import zone.dragon.dropwizard.cors.BenchmarkResources.ExposeAllResource;
+import zone.dragon.dropwizard.cors.BenchmarkResources.SimpleResource;
+
+/**
+ * Application driven by {@link LoadTest}, serving the {@link BenchmarkResources} with or without the {@link CorsBundle}
+ */
+public abstract class LoadTestApp extends Application<Configuration> {
+    /**
+     * @return {@code true} if the CORS bundle is added
+     */
+    protected abstract boolean isCorsEnabled();
+
+    @Override
+    public void initialize(Bootstrap<Configuration> bootstrap) {
+        if (isCorsEnabled()) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+    }
+
+    @Override
+    public void run(Configuration configuration, Environment environment) {
+        environment.jersey().register(SimpleResource.class);
+        environment.jersey().register(ExposeAllResource.class);
+        environment.jersey().register(DeepResource.class);
+    }
+
+    /**
+     * Application without CORS support, used to measure the baseline
+     */
+    public static class Baseline extends LoadTestApp {
+        @Override
+        protected boolean isCorsEnabled() {
+            return false;
+        }
+    }
+
+    /**
+     * Application with CORS support
+     */
+    public static class Cors extends LoadTestApp {
+        @Override
+        protected boolean isCorsEnabled() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package zone.dragon.dropwizard.cors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link OriginMatcher} with large lists of exact origins and subdomain patterns, which can't reasonably be expressed as
+ * annotations in {@link CorsResponseFilterBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OriginMatcherBenchmark {
+    @Param({"10", "1000", "10000"})
+    private int size;
+
+    private OriginMatcher exact;
+    private OriginMatcher patterns;
+    private String        exactHit;
+    private String        patternHit;
+    private String        miss;
+
+    @Setup
+    public void setup() {
+        List<String> exactOrigins   = new ArrayList<>(size);
+        List<String> originPatterns = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            exactOrigins.add(String.format("https://tenant%d.example.com", i));
+            originPatterns.add(String.format("https://*.tenant%d.example.com", i));
+        }
+        exact = OriginMatcher.of(exactOrigins);
+        patterns = OriginMatcher.of(originPatterns);
+        exactHit = String.format("https://tenant%d.example.com", size - 1);
+        patternHit = String.format("https://app.tenant%d.example.com", size - 1);
+        miss = "https://app.unknown.example.com";
+    }
+
+    @Benchmark
+    public boolean exactHit() {
+        return exact.matches(exactHit);
+    }
+
+    @Benchmark
+    public boolean exactMiss() {
+        return exact.matches(miss);
+    }
+
+    @Benchmark
+    public boolean patternHit() {
+        return patterns.matches(patternHit);
+    }
+
+    @Benchmark
+    public boolean patternMiss() {
+        return patterns.matches(miss);
+    }
+}
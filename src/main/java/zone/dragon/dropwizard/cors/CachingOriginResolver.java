@@ -0,0 +1,165 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the decisions of an {@link OriginResolver}:
+ * <ul>
+ * <li>Concurrent requests from an origin that isn't cached wait for a single call to the resolver</li>
+ * <li>Denied origins are cached the same as allowed ones, so repeated requests from an unknown origin don't reach the backing store</li>
+ * <li>Once a decision is older than the refresh interval, the next request triggers a reload on the executor and keeps using the cached
+ * decision until the reload completes; If the reload fails, the cached decision is kept</li>
+ * <li>Decisions that haven't been refreshed within the expiry interval are dropped, as are the least recently used decisions once the
+ * cache is full</li>
+ * <li>If the resolver fails for an origin that isn't cached, the origin is denied without calling the resolver again for a few seconds,
+ * so that requests don't queue up on a backing store that is down; Failures are logged at most once per {@value
+ * #WARN_INTERVAL_SECONDS} seconds</li>
+ * </ul>
+ * As long as every origin is requested more often than the expiry interval, requests never wait on the resolver after warm-up.
+ */
+@Slf4j
+public class CachingOriginResolver implements OriginResolver {
+    /**
+     * Longest time an origin is denied after the resolver failed for it
+     */
+    static final long FAILURE_TTL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Minimum time between two warnings about failed resolutions
+     */
+    static final long WARN_INTERVAL_SECONDS = 60;
+
+    /**
+     * Thrown instead of calling the resolver for an origin that it failed for recently; Shared, since it has no stack trace
+     */
+    private static final RecentFailureException RECENT_FAILURE = new RecentFailureException();
+
+    private final LoadingCache<String, OriginDecision> cache;
+    private final Cache<String, Boolean>               failures;
+    private final AtomicLong                           nextWarning        = new AtomicLong(System.nanoTime());
+    private final AtomicLong                           suppressedWarnings = new AtomicLong();
+
+    /**
+     * Creates a caching resolver
+     *
+     * @param delegate
+     *     Resolver to cache the decisions of
+     * @param refreshAfterNanos
+     *     Age after which a decision is reloaded in the background
+     * @param expireAfterNanos
+     *     Age after which a decision is dropped; Should be longer than {@code refreshAfterNanos}
+     * @param maximumSize
+     *     Maximum number of cached decisions
+     * @param executor
+     *     Executor that background reloads run on
+     */
+    public CachingOriginResolver(
+        @NonNull OriginResolver delegate, long refreshAfterNanos, long expireAfterNanos, long maximumSize, @NonNull Executor executor
+    ) {
+        this(delegate, refreshAfterNanos, expireAfterNanos, maximumSize, executor, Math.min(refreshAfterNanos, FAILURE_TTL_NANOS));
+    }
+
+    /**
+     * @param failureTtlNanos
+     *     Time an origin is denied after the resolver failed for it
+     */
+    CachingOriginResolver(
+        @NonNull OriginResolver delegate,
+        long refreshAfterNanos,
+        long expireAfterNanos,
+        long maximumSize,
+        @NonNull Executor executor,
+        long failureTtlNanos
+    ) {
+        failures = CacheBuilder.newBuilder().expireAfterWrite(failureTtlNanos, TimeUnit.NANOSECONDS).maximumSize(maximumSize).build();
+        cache = CacheBuilder
+            .newBuilder()
+            .refreshAfterWrite(refreshAfterNanos, TimeUnit.NANOSECONDS)
+            .expireAfterWrite(expireAfterNanos, TimeUnit.NANOSECONDS)
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build(CacheLoader.asyncReloading(new CacheLoader<String, OriginDecision>() {
+                @Override
+                public OriginDecision load(String origin) throws Exception {
+                    if (failures.getIfPresent(origin) != null) {
+                        throw RECENT_FAILURE;
+                    }
+                    OriginDecision decision;
+                    try {
+                        decision = delegate.resolve(origin);
+                    } catch (Exception e) {
+                        failures.put(origin, Boolean.TRUE);
+                        throw e;
+                    }
+                    if (decision == null) {
+                        failures.put(origin, Boolean.TRUE);
+                        throw new IllegalStateException(delegate.getClass().getName() + " returned no decision for " + origin);
+                    }
+                    return decision;
+                }
+            }, executor));
+    }
+
+    /**
+     * Looks up the decision for an origin, calling the underlying resolver only if the origin isn't cached
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header
+     *
+     * @return Decision for the origin; Denied if the underlying resolver failed
+     */
+    @Override
+    public OriginDecision resolve(@NonNull String origin) {
+        try {
+            return cache.get(OriginMatcher.normalize(origin));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() != RECENT_FAILURE) {
+                warn(origin, e.getCause());
+            }
+            return OriginDecision.deny();
+        }
+    }
+
+    /**
+     * @return Hit, miss, load and eviction counts
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Logs a failed resolution, unless another one was logged within the warning interval
+     */
+    private void warn(String origin, Throwable cause) {
+        long now  = System.nanoTime();
+        long next = nextWarning.get();
+        if (now - next < 0 || !nextWarning.compareAndSet(next, now + TimeUnit.SECONDS.toNanos(WARN_INTERVAL_SECONDS))) {
+            suppressedWarnings.incrementAndGet();
+            return;
+        }
+        long suppressed = suppressedWarnings.getAndSet(0);
+        if (suppressed > 0) {
+            log.warn("Failed to resolve CORS origin {} ({} more failures since the last warning)", origin, suppressed, cause);
+        } else {
+            log.warn("Failed to resolve CORS origin {}", origin, cause);
+        }
+    }
+
+    private static final class RecentFailureException extends Exception {
+        private RecentFailureException() {
+            super("Resolver failed recently", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.base.Splitter;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders comma-separated header lists, such as an {@code Access-Control-Request-Headers} value that is echoed back, in the canonical form
+ * of {@link CorsPolicy#canonicalize(Iterable)}, joined with {@code ", "}. Rendered values are cached by the exact list that was requested,
+ * so repeated requests from the same client reuse a single instance.
+ * <p>
+ * Like {@link ExposedHeadersCache}, entries live in a fixed-size table indexed by hash, and a colliding list replaces the previous entry,
+ * so the cache stays bounded no matter how many distinct lists clients send.
+ */
+final class CanonicalHeaderListCache {
+    private static final int      TABLE_SIZE = 256;
+    private static final Splitter SPLITTER   = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private final AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(TABLE_SIZE);
+
+    /**
+     * Renders a header list in canonical form
+     *
+     * @param headerList
+     *     Comma-separated header names
+     *
+     * @return Canonical header value, or {@code null} if the list contains no names
+     */
+    String render(String headerList) {
+        int   hash  = headerList.hashCode();
+        int   index = (hash ^ (hash >>> 16)) & (TABLE_SIZE - 1);
+        Entry entry = table.get(index);
+        if (entry != null && entry.headerList.equals(headerList)) {
+            return entry.value;
+        }
+        List<String> names = CorsPolicy.canonicalize(SPLITTER.split(headerList));
+        entry = new Entry(headerList, names.isEmpty() ? null : CorsPolicy.LIST_JOINER.join(names));
+        table.set(index, entry);
+        return entry.value;
+    }
+
+    private static final class Entry {
+        private final String headerList;
+        private final String value;
+
+        private Entry(String headerList, String value) {
+            this.headerList = headerList;
+            this.value = value;
+        }
+    }
+}
@@ -1,17 +1,286 @@
 package zone.dragon.dropwizard.cors;
 
-import io.dropwizard.Bundle;
+import com.google.common.base.Preconditions;
+import io.dropwizard.Configuration;
+import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.configuration.YamlConfigurationFactory;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+
+import javax.servlet.DispatcherType;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Adds CORS support to an application; Policies come from the CORS annotations on resources, supplemented by an optional {@link
+ * CorsConfiguration} taken from the application's configuration.
+ *
+ * @param <T>
+ *     Type of the application's configuration
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+@Slf4j
+public class CorsBundle<T extends Configuration> implements ConfiguredBundle<T> {
+    /**
+     * Extracts the CORS configuration from the application's configuration
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Function<? super T, CorsConfiguration> configurationAccessor;
+
+    /**
+     * Whether {@link CorsMetrics} are registered with the environment's metric registry
+     */
+    private boolean metricsEnabled = true;
+
+    /**
+     * Whether pre-flight requests are answered by {@link CorsPreflightServletFilter} before they reach Jersey
+     */
+    private boolean servletPreflightEnabled = false;
+
+    /**
+     * Whether Jersey's default {@code OPTIONS} handling is replaced by {@link CorsOptionsModelProcessor} for CORS enabled resources
+     */
+    private boolean leanPreflightEnabled = true;
+
+    /**
+     * Whether {@link CorsResponseFilter} is bound only to the resource methods that CORS can apply to by {@link CorsDynamicFeature}, rather
+     * than to every resource; Ignored if the {@link CorsConfiguration} has any policies, since they can apply to any resource
+     */
+    private boolean dynamicBindingEnabled = true;
+
+    /**
+     * Whether policies are built from the registries that {@link CorsPolicyProcessor} generates, for the classes listed in the indexes it
+     * writes; If not, or for classes that aren't listed, annotations are read reflectively
+     */
+    private boolean generatedPoliciesEnabled = true;
+
+    /**
+     * Whether {@link CorsPolicyRegistry} warms up at startup by compiling policies in parallel, including those of the sub-resources that
+     * resource locators return, so the first requests after boot don't pay for reflection
+     */
+    private boolean warmUpEnabled = false;
+
+    /**
+     * Number of threads that compile policies when warm-up is enabled
+     */
+    private int warmUpParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of rendered pre-flight responses kept by {@link CorsPreflightCache}; {@code 0} disables the cache
+     */
+    private long preflightCacheSize = 10_000;
+
+    /**
+     * {@code Access-Control-Max-Age} of pre-flight responses for resources that don't set one, unless the {@link CorsConfiguration} sets
+     * a default or a tier that matches the origin; {@code null} (the default) omits the header, so browsers cache pre-flight responses for
+     * only a few seconds
+     */
+    private Duration defaultMaxAge;
+
+    /**
+     * Maximum number of origins whose allowed pre-flight requests are metered separately, after which further origins share a single meter;
+     * {@code 0} disables the per-origin meters
+     */
+    private int preflightOriginMetricsLimit = 100;
+
+    /**
+     * Age after which a decision of an {@link OriginResolver} is refreshed in the background
+     */
+    @NonNull
+    private Duration originRefreshInterval = Duration.minutes(1);
+
+    /**
+     * Age after which a decision of an {@link OriginResolver} that hasn't been refreshed is dropped
+     */
+    @NonNull
+    private Duration originExpiryInterval = Duration.minutes(10);
+
+    /**
+     * Maximum number of decisions cached for each {@link OriginResolver}
+     */
+    private long originCacheSize = 10_000;
+
+    /**
+     * Sustained rate of pre-flight requests allowed from each origin per second; {@code 0} (the default) disables rate limiting
+     */
+    private double preflightRateLimit = 0;
+
+    /**
+     * Number of pre-flight requests that an origin can make at once when rate limiting is enabled
+     */
+    private int preflightRateLimitBurst = 20;
+
+    /**
+     * Maximum number of origins that {@link PreflightRateLimiter} tracks at once
+     */
+    private int preflightRateLimitOrigins = 4096;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final List<OriginResolver> originResolvers = new ArrayList<>();
+
+    /**
+     * Creates a bundle that only uses CORS annotations
+     */
+    public CorsBundle() {
+        this(configuration -> new CorsConfiguration());
+    }
+
+    /**
+     * Creates a bundle that supplements the CORS annotations with configuration
+     *
+     * @param configurationAccessor
+     *     Extracts the CORS configuration from the application's configuration
+     */
+    public CorsBundle(@NonNull Function<? super T, CorsConfiguration> configurationAccessor) {
+        this.configurationAccessor = configurationAccessor;
+    }
+
+    /**
+     * Adds a resolver that {@link zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins#resolver()} can refer to by its class; The
+     * resolver is also bound in HK2, so that it can be injected into resources.
+     *
+     * @param originResolver
+     *     Resolver to add
+     *
+     * @return This bundle
+     *
+     * @throws IllegalArgumentException
+     *     if a resolver of the same class was already added, since annotations couldn't tell them apart
+     */
+    public CorsBundle<T> addOriginResolver(@NonNull OriginResolver originResolver) {
+        for (OriginResolver added : originResolvers) {
+            Preconditions.checkArgument(
+                added.getClass() != originResolver.getClass(),
+                "An origin resolver of class %s was already added",
+                originResolver.getClass().getName()
+            );
+        }
+        originResolvers.add(originResolver);
+        return this;
+    }
 
-public class CorsBundle implements Bundle {
     @Override
     public void initialize(Bootstrap<?> bootstrap) {
         // not used
     }
 
     @Override
-    public void run(Environment environment) {
-        environment.jersey().register(CorsResponseFilter.class);
+    public void run(T configuration, Environment environment) throws Exception {
+        if (generatedPoliciesEnabled) {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            GeneratedPolicyLoader.loadIndex(classLoader == null ? CorsBundle.class.getClassLoader() : classLoader);
+        }
+        CorsConfiguration corsConfiguration = configurationAccessor.apply(configuration);
+        if (corsConfiguration == null) {
+            corsConfiguration = new CorsConfiguration();
+        }
+        CorsPolicyRegistry registry = new CorsPolicyRegistry(
+            corsConfiguration,
+            warmUpEnabled ? warmUpParallelism : 0,
+            defaultMaxAge == null ? null : defaultMaxAge.toSeconds()
+        );
+        if (metricsEnabled) {
+            registry.registerMetrics(environment.metrics());
+        }
+        if (corsConfiguration.getReloadFile() != null) {
+            CorsReloadTask reloadTask = new CorsReloadTask(
+                registry,
+                new YamlConfigurationFactory<>(CorsConfiguration.class, environment.getValidator(), environment.getObjectMapper(), "cors"),
+                corsConfiguration.getReloadFile()
+            );
+            registry.reload(reloadTask.load());
+            environment.admin().addTask(reloadTask);
+        }
+        CorsMetrics        metrics        = metricsEnabled
+                                            ? CorsMetrics.register(environment.metrics(), preflightOriginMetricsLimit)
+                                            : CorsMetrics.disabled();
+        CorsPreflightCache preflightCache = CorsPreflightCache.of(preflightCacheSize);
+        if (metricsEnabled && preflightCache.isEnabled()) {
+            preflightCache.registerMetrics(environment.metrics());
+        }
+        CorsOriginResolvers resolvers      = createOriginResolvers(environment);
+        CorsLocatorTargets  locatorTargets = new CorsLocatorTargets();
+        environment.jersey().register(registry);
+        environment.jersey().register(new AbstractBinder() {
+            @Override
+            protected void configure() {
+                bind(registry).to(CorsPolicyRegistry.class);
+                bind(metrics).to(CorsMetrics.class);
+                bind(preflightCache).to(CorsPreflightCache.class);
+                bind(resolvers).to(CorsOriginResolvers.class);
+                bind(locatorTargets).to(CorsLocatorTargets.class);
+                for (OriginResolver originResolver : originResolvers) {
+                    bind(originResolver).to(OriginResolver.class);
+                }
+            }
+        });
+        if (dynamicBindingEnabled && !appliesToAnyResource(corsConfiguration)) {
+            environment.jersey().register(locatorTargets);
+            environment.jersey().register(CorsDynamicFeature.class);
+        } else {
+            if (dynamicBindingEnabled) {
+                log.info("CORS policies in the configuration can apply to any resource, so the CORS filter is bound to every method");
+            }
+            environment.jersey().register(CorsResponseFilter.class);
+        }
+        PreflightRateLimiter rateLimiter = null;
+        if (preflightRateLimit > 0) {
+            rateLimiter = new PreflightRateLimiter(preflightRateLimit, preflightRateLimitBurst, preflightRateLimitOrigins);
+            environment.jersey().register(new CorsPreflightRateLimitFilter(rateLimiter, metrics));
+        }
+        if (leanPreflightEnabled) {
+            environment.jersey().register(new CorsOptionsModelProcessor(registry.getConfiguration()));
+        }
+        if (servletPreflightEnabled) {
+            CorsPreflightServletFilter filter = new CorsPreflightServletFilter(registry, metrics, preflightCache, resolvers, rateLimiter);
+            environment
+                .servlets()
+                .addFilter(CorsPreflightServletFilter.class.getSimpleName(), filter)
+                .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, environment.jersey().getUrlPattern());
+        }
+    }
+
+    /**
+     * Checks whether a configuration can enable CORS for resources without annotations, now or after it is reloaded
+     */
+    private static boolean appliesToAnyResource(CorsConfiguration configuration) {
+        return configuration.getDefaults().getAllowOrigins() != null
+               || !configuration.getPaths().isEmpty()
+               || configuration.getReloadFile() != null;
+    }
+
+    private CorsOriginResolvers createOriginResolvers(Environment environment) {
+        if (originResolvers.isEmpty()) {
+            return CorsOriginResolvers.EMPTY;
+        }
+        ExecutorService executor = environment.lifecycle().executorService("cors-origin-resolver-%d").minThreads(1).maxThreads(1).build();
+        Map<Class<? extends OriginResolver>, CachingOriginResolver> resolvers = new HashMap<>();
+        for (OriginResolver originResolver : originResolvers) {
+            resolvers.put(originResolver.getClass(), new CachingOriginResolver(
+                originResolver,
+                originRefreshInterval.toNanoseconds(),
+                originExpiryInterval.toNanoseconds(),
+                originCacheSize,
+                executor
+            ));
+        }
+        return new CorsOriginResolvers(resolvers);
     }
 }
@@ -0,0 +1,64 @@
+package zone.dragon.dropwizard.cors;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration for {@link CorsBundle} that supplements the CORS annotations; Policies are resolved in the following order, with the first
+ * attribute found winning:
+ * <ol>
+ * <li>The policy configured in {@link #getPaths() paths} for the path template of the resource method or resource locator</li>
+ * <li>The annotations on the resource method, its class, and any resource locators, as described in the README</li>
+ * <li>The {@link #getDefaults() defaults}</li>
+ * </ol>
+ * Setting {@code allowOrigins} in the defaults enables CORS for every resource. If no path override or annotation sets a max-age, the first
+ * of the {@link #getMaxAgeTiers() max-age tiers} that matches the origin of a pre-flight request is used before the defaults.
+ */
+@Data
+public class CorsConfiguration {
+    /**
+     * Attributes used when they are not set by annotations or path overrides
+     */
+    @Valid
+    @NotNull
+    @JsonProperty
+    private CorsPolicyConfiguration defaults = new CorsPolicyConfiguration();
+
+    /**
+     * Policies that take precedence over annotations, keyed by the full path template of a resource (Ex. {@code /users/{id}})
+     */
+    @Valid
+    @NotNull
+    @JsonProperty
+    private Map<String, CorsPolicyConfiguration> paths = new LinkedHashMap<>();
+
+    /**
+     * Max-age of pre-flight responses for groups of origins, used for resources that don't set one with an annotation or path override;
+     * The first tier that matches the origin is used, and the max-age of the {@link #getDefaults() defaults} for other origins
+     */
+    @Valid
+    @NotNull
+    @JsonProperty
+    private List<CorsMaxAgeTierConfiguration> maxAgeTiers = new ArrayList<>();
+
+    /**
+     * Optional YAML file containing a {@link CorsConfiguration}, which replaces this configuration when it is loaded at startup and
+     * whenever the {@code cors-reload} admin task is run
+     */
+    @JsonProperty
+    private String reloadFile;
+
+    /**
+     * Whether to render CORS header values in a single canonical form (lower case, sorted header names), which lets HTTP/2 connections
+     * index them with HPACK; See {@link CorsPolicy#canonical()}
+     */
+    @JsonProperty
+    private boolean canonicalHeaders;
+}
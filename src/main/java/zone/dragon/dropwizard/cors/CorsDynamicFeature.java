@@ -0,0 +1,77 @@
+package zone.dragon.dropwizard.cors;
+
+import org.glassfish.jersey.process.Inflector;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.Method;
+
+/**
+ * Binds {@link CorsResponseFilter} only to the resource methods that CORS can apply to, so that responses from other resources (health
+ * checks, internal APIs, streaming endpoints) don't pass through the filter at all. A single filter instance is shared by every bound
+ * method, and still looks up the effective policy in {@link CorsPolicyRegistry}, since the policy of a method reached through resource
+ * locators depends on the locators that were matched, and can change when the configuration is reloaded.
+ * <p>
+ * The filter is bound to a resource method if any of the following are true:
+ * <ul>
+ * <li>{@link CorsAllowOrigins} is on the method or its class</li>
+ * <li>The class may be returned by a resource locator with a policy, as collected by {@link CorsLocatorTargets}</li>
+ * <li>The method is handled by an {@link Inflector} (such as Jersey's default {@code OPTIONS} handler, or the one added by {@link
+ * CorsOptionsModelProcessor}), and may answer pre-flight requests for a CORS enabled resource</li>
+ * </ul>
+ * Sub-resource classes that no locator with a policy returns aren't bound, even though they aren't root resources. If a locator with a
+ * policy returns a type that doesn't name its sub-resource class, every method is bound, which {@link CorsLocatorTargets} logs.
+ * Policies from {@link CorsConfiguration} can apply to any resource, so {@link CorsBundle} registers the filter globally instead when any
+ * are configured.
+ */
+public class CorsDynamicFeature implements DynamicFeature {
+    private final CorsResponseFilter filter;
+    private final CorsLocatorTargets locatorTargets;
+
+    @Inject
+    public CorsDynamicFeature(
+        Provider<ExtendedUriInfo> uriInfo,
+        CorsPolicyRegistry registry,
+        CorsMetrics metrics,
+        CorsPreflightCache preflightCache,
+        CorsOriginResolvers originResolvers,
+        CorsLocatorTargets locatorTargets
+    ) {
+        this.filter = new CorsResponseFilter(uriInfo, registry, metrics, preflightCache, originResolvers);
+        this.locatorTargets = locatorTargets;
+    }
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        if (appliesTo(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod(), locatorTargets)) {
+            context.register(filter);
+        }
+    }
+
+    /**
+     * Checks whether CORS can apply to a resource method
+     *
+     * @param resourceClass
+     *     Class of the resource, may be {@code null}
+     * @param resourceMethod
+     *     Java method that handles requests, may be {@code null}
+     * @param locatorTargets
+     *     Classes returned by resource locators with a CORS policy
+     *
+     * @return {@code true} if the filter needs to be bound to the method
+     */
+    static boolean appliesTo(Class<?> resourceClass, Method resourceMethod, CorsLocatorTargets locatorTargets) {
+        if (resourceClass == null || resourceMethod == null) {
+            return false;
+        }
+        if (resourceMethod.isAnnotationPresent(CorsAllowOrigins.class) || resourceClass.isAnnotationPresent(CorsAllowOrigins.class)) {
+            return true;
+        }
+        return Inflector.class.isAssignableFrom(resourceClass) || locatorTargets.isTarget(resourceClass);
+    }
+}
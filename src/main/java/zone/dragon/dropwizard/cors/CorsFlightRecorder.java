@@ -0,0 +1,99 @@
+package zone.dragon.dropwizard.cors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import java.lang.reflect.Method;
+
+/**
+ * Emits Java Flight Recorder events for CORS requests; The JFR API ({@code jdk.jfr}) is only present on newer JVMs, so the events live
+ * in {@link JfrCorsFlightRecorder}, which is only loaded if the API is available. On other JVMs {@link #DISABLED} is used, and callers
+ * that check {@link #isEnabled()} pay nothing beyond a constant check.
+ */
+@Slf4j
+abstract class CorsFlightRecorder {
+    /**
+     * Recorder that never records anything
+     */
+    static final CorsFlightRecorder DISABLED = new CorsFlightRecorder() {
+        @Override
+        boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        void simpleRequest(ResourceMethod method, String origin, boolean allowed, CorsPolicyLevel level, long elapsedNanos) {
+        }
+
+        @Override
+        void preflightRequest(
+            String resource, String requestMethod, String origin, boolean allowed, CorsPolicyLevel level, long elapsedNanos
+        ) {
+        }
+    };
+
+    private static final String JFR_EVENT_CLASS = "jdk.jfr.Event";
+
+    /**
+     * @return Recorder that emits JFR events, or {@link #DISABLED} if the JVM doesn't support them
+     */
+    static CorsFlightRecorder create() {
+        try {
+            Class.forName(JFR_EVENT_CLASS, false, CorsFlightRecorder.class.getClassLoader());
+            return new JfrCorsFlightRecorder();
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.debug("Java Flight Recorder is not available, CORS events will not be recorded", e);
+            return DISABLED;
+        }
+    }
+
+    /**
+     * @return {@code true} if a recording is running that has the CORS events enabled; Callers should only gather event fields and call
+     * the other methods of this class if this returns {@code true}
+     */
+    abstract boolean isEnabled();
+
+    /**
+     * Records a simple (non pre-flight) cross-origin request
+     *
+     * @param method
+     *     Resource method that handled the request
+     * @param origin
+     *     Value of the {@code Origin} request header
+     * @param allowed
+     *     Whether the origin was allowed
+     * @param level
+     *     Where the allowed origins of the policy came from
+     * @param elapsedNanos
+     *     Time spent applying the policy
+     */
+    abstract void simpleRequest(ResourceMethod method, String origin, boolean allowed, CorsPolicyLevel level, long elapsedNanos);
+
+    /**
+     * Records a pre-flight request
+     *
+     * @param resource
+     *     Path of the resource that the request was matched to
+     * @param requestMethod
+     *     Value of the {@code Access-Control-Request-Method} request header, may be {@code null}
+     * @param origin
+     *     Value of the {@code Origin} request header
+     * @param allowed
+     *     Whether the origin and method were allowed
+     * @param level
+     *     Where the allowed origins of the requested method's policy came from
+     * @param elapsedNanos
+     *     Time spent answering the pre-flight request
+     */
+    abstract void preflightRequest(
+        String resource, String requestMethod, String origin, boolean allowed, CorsPolicyLevel level, long elapsedNanos
+    );
+
+    /**
+     * Renders a resource method as {@code Class#method}
+     */
+    static String describe(ResourceMethod method) {
+        Method definition = method.getInvocable().getDefinitionMethod();
+        return definition.getDeclaringClass().getName() + '#' + definition.getName();
+    }
+}
@@ -0,0 +1,94 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.jersey.server.model.ModelProcessor;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+
+import javax.ws.rs.core.Configuration;
+import java.util.Set;
+
+/**
+ * Collects the sub-resource classes that resource locators with a CORS policy return, including those reached through further locators
+ * below them, so that {@link CorsDynamicFeature} binds the filter to their methods even if the classes are annotated with {@link
+ * javax.ws.rs.Path}. Jersey processes a resource model before it applies dynamic features to its methods, so the targets of a locator are
+ * known by the time the methods of its sub-resource are bound.
+ * <p>
+ * A locator whose return type doesn't name its sub-resource class (such as {@code Object}, {@link Resource} or {@code Class}) can reach
+ * any class, so once one has a CORS policy every resource method is treated as CORS capable, which is logged at {@code INFO}.
+ */
+@Slf4j
+final class CorsLocatorTargets implements ModelProcessor {
+    private final Set<Class<?>> targets = Sets.newConcurrentHashSet();
+
+    private volatile boolean unknownTargets;
+
+    @Override
+    public ResourceModel processResourceModel(ResourceModel resourceModel, Configuration configuration) {
+        for (Resource resource : resourceModel.getResources()) {
+            collect(resource, false);
+        }
+        return resourceModel;
+    }
+
+    @Override
+    public ResourceModel processSubResource(ResourceModel subResourceModel, Configuration configuration) {
+        for (Resource resource : subResourceModel.getResources()) {
+            collect(resource, false);
+        }
+        return subResourceModel;
+    }
+
+    /**
+     * Checks whether a class may be returned by a resource locator with a CORS policy
+     */
+    boolean isTarget(Class<?> resourceClass) {
+        if (unknownTargets) {
+            return true;
+        }
+        for (Class<?> target : targets) {
+            if (target.isAssignableFrom(resourceClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param inherited
+     *     Whether the resource is reached through a locator with a CORS policy
+     */
+    private void collect(Resource resource, boolean inherited) {
+        boolean        cors    = inherited || isHandledByTarget(resource);
+        ResourceMethod locator = resource.getResourceLocator();
+        if (locator != null && (cors || CorsPolicy.of(locator).isEnabled())) {
+            Class<?> target = locator.getInvocable().getRawResponseType();
+            if (target == Object.class || target == Class.class || Resource.class.isAssignableFrom(target)) {
+                if (!unknownTargets) {
+                    log.info(
+                        "Resource locator {} returns {}, so the CORS filter is bound to every resource method",
+                        locator.getInvocable().getHandlingMethod(),
+                        target.getSimpleName()
+                    );
+                }
+                unknownTargets = true;
+            } else {
+                targets.add(target);
+            }
+        }
+        for (Resource child : resource.getChildResources()) {
+            collect(child, cors);
+        }
+    }
+
+    private boolean isHandledByTarget(Resource resource) {
+        for (Class<?> handlerClass : resource.getHandlerClasses()) {
+            if (isTarget(handlerClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package zone.dragon.dropwizard.cors;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Max-age of pre-flight responses to a group of origins, such as a long one for trusted first-party origins and a short one for third
+ * parties
+ */
+@Data
+public class CorsMaxAgeTierConfiguration {
+    /**
+     * Origins or subdomain patterns in this tier, in the same form as {@link zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins}
+     */
+    @NotNull
+    @Size(min = 1)
+    @JsonProperty
+    private List<String> origins = new ArrayList<>();
+
+    /**
+     * Number of seconds that pre-flight responses to origins in this tier remain valid, or {@link
+     * zone.dragon.dropwizard.cors.annotations.CorsMaxAge#DISABLED} to not cache them at all
+     */
+    @NotNull
+    @Min(-1)
+    @JsonProperty
+    private Long maxAge;
+}
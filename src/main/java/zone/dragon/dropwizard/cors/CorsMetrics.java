@@ -0,0 +1,209 @@
+package zone.dragon.dropwizard.cors;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Metrics for the decisions made by {@link CorsResponseFilter} and the latency it adds to cross-origin requests. All metrics are
+ * registered up front so that recording a request never has to look anything up in the {@link MetricRegistry}, except for the meters of
+ * allowed pre-flight requests per listed origin, which are registered the first time an origin is seen, up to a limit.
+ */
+public class CorsMetrics {
+    private static final CorsMetrics DISABLED = new CorsMetrics();
+
+    /**
+     * Characters that are kept when an origin is turned into a metric name; Others (such as the dots and colons of the origin) are replaced
+     * with underscores
+     */
+    private static final CharMatcher ORIGIN_NAME_CHARS = CharMatcher
+        .inRange('a', 'z')
+        .or(CharMatcher.inRange('0', '9'))
+        .or(CharMatcher.is('-'));
+
+    private final boolean enabled;
+    private final Timer   simpleTimer;
+    private final Timer   preflightTimer;
+    private final Meter   simpleAllowed;
+    private final Meter   simpleDenied;
+    private final Meter   preflightAllowed;
+    private final Meter   preflightDenied;
+    private final Meter   preflightRateLimited;
+
+    private final MetricRegistry               registry;
+    private final int                          originLimit;
+    private final ConcurrentMap<String, Meter> originMeters;
+    private final Meter                        otherOrigins;
+
+    private CorsMetrics() {
+        enabled = false;
+        simpleTimer = null;
+        preflightTimer = null;
+        simpleAllowed = null;
+        simpleDenied = null;
+        preflightAllowed = null;
+        preflightDenied = null;
+        preflightRateLimited = null;
+        registry = null;
+        originLimit = 0;
+        originMeters = null;
+        otherOrigins = null;
+    }
+
+    private CorsMetrics(MetricRegistry registry, int originLimit) {
+        enabled = true;
+        simpleTimer = registry.timer(name(CorsResponseFilter.class, "simple"));
+        preflightTimer = registry.timer(name(CorsResponseFilter.class, "preflight"));
+        simpleAllowed = registry.meter(name(CorsResponseFilter.class, "simple", "allowed"));
+        simpleDenied = registry.meter(name(CorsResponseFilter.class, "simple", "denied"));
+        preflightAllowed = registry.meter(name(CorsResponseFilter.class, "preflight", "allowed"));
+        preflightDenied = registry.meter(name(CorsResponseFilter.class, "preflight", "denied"));
+        preflightRateLimited = registry.meter(name(CorsResponseFilter.class, "preflight", "rateLimited"));
+        this.registry = registry;
+        this.originLimit = originLimit;
+        originMeters = new ConcurrentHashMap<>();
+        otherOrigins = originLimit == 0 ? null : registry.meter(name(CorsResponseFilter.class, "preflight", "origins", "other"));
+    }
+
+    /**
+     * @return Metrics that don't record anything
+     */
+    public static CorsMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Registers (or reuses, if already registered) the CORS metrics in a registry
+     *
+     * @param registry
+     *     Registry to register the metrics with
+     *
+     * @return Metrics that record to the registry
+     */
+    public static CorsMetrics register(@NonNull MetricRegistry registry) {
+        return register(registry, 0);
+    }
+
+    /**
+     * Registers (or reuses, if already registered) the CORS metrics in a registry, including meters of allowed pre-flight requests for up
+     * to {@code originLimit} origins
+     *
+     * @param registry
+     *     Registry to register the metrics with
+     * @param originLimit
+     *     Maximum number of origins to meter separately, after which further origins are metered together; {@code 0} disables the
+     *     per-origin meters
+     *
+     * @return Metrics that record to the registry
+     */
+    public static CorsMetrics register(@NonNull MetricRegistry registry, int originLimit) {
+        Preconditions.checkArgument(originLimit >= 0, "originLimit must not be negative");
+        return new CorsMetrics(registry, originLimit);
+    }
+
+    /**
+     * @return {@code true} if these metrics record anything
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the start of filtering a request
+     *
+     * @return Start time to pass to {@link #simpleRequest(boolean, long)} or {@link #preflightRequest(boolean, long)}, or {@code 0} if
+     * disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a simple (non pre-flight) cross-origin request
+     *
+     * @param allowed
+     *     Whether the request's origin was allowed
+     * @param start
+     *     Value returned by {@link #start()} when filtering began
+     */
+    public void simpleRequest(boolean allowed, long start) {
+        if (!enabled) {
+            return;
+        }
+        simpleTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        (allowed ? simpleAllowed : simpleDenied).mark();
+    }
+
+    /**
+     * Records a pre-flight request
+     *
+     * @param allowed
+     *     Whether the request's origin and method were allowed
+     * @param start
+     *     Value returned by {@link #start()} when filtering began
+     */
+    public void preflightRequest(boolean allowed, long start) {
+        if (!enabled) {
+            return;
+        }
+        preflightTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        (allowed ? preflightAllowed : preflightDenied).mark();
+    }
+
+    /**
+     * Records an allowed pre-flight request from an origin, so that the rate of pre-flight requests per origin shows how well browsers
+     * cache the responses; Only origins that a policy lists by name get a meter of their own, since any client can send an {@code Origin}
+     * header that a wildcard, a subdomain pattern or a resolver allows, and would otherwise use up the meters
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header
+     * @param listed
+     *     Whether the policy that allowed the request lists the origin by name
+     */
+    public void preflightOrigin(String origin, boolean listed) {
+        if (originLimit == 0 || origin == null) {
+            return;
+        }
+        if (!listed) {
+            otherOrigins.mark();
+            return;
+        }
+        String normalized = OriginMatcher.normalize(origin);
+        Meter  meter      = originMeters.get(normalized);
+        if (meter == null) {
+            meter = originMeter(normalized);
+        }
+        meter.mark();
+    }
+
+    private Meter originMeter(String origin) {
+        if (originMeters.size() >= originLimit) {
+            return otherOrigins;
+        }
+        return originMeters.computeIfAbsent(origin, key -> registry.meter(name(
+            CorsResponseFilter.class,
+            "preflight",
+            "origins",
+            ORIGIN_NAME_CHARS.negate().replaceFrom(key, '_')
+        )));
+    }
+
+    /**
+     * Records a pre-flight request that was rejected by the {@link PreflightRateLimiter}
+     */
+    public void preflightRateLimited() {
+        if (!enabled) {
+            return;
+        }
+        preflightRateLimited.mark();
+    }
+}
@@ -0,0 +1,180 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.Sets;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.glassfish.jersey.process.Inflector;
+import org.glassfish.jersey.server.model.ModelProcessor;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.glassfish.jersey.uri.PathTemplate;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Adds a lean {@code OPTIONS} handler to every CORS enabled resource that doesn't declare its own, which replaces Jersey's default handler
+ * (which renders an entity, and possibly WADL, for every request). The handler responds with {@code 204 No Content} and a pre-rendered
+ * {@code Allow} header; {@link CorsResponseFilter} then adds the CORS headers for pre-flight requests.
+ * <p>
+ * A resource is CORS enabled if any of its resource methods have a CORS policy, if its path has a configured policy that enables CORS (or
+ * the configured defaults do), or if it is the type returned by a resource locator that has a CORS policy. Sub-resources are matched to
+ * configured path policies only by the path of their locator.
+ * <p>
+ * The handlers are added when Jersey builds its resource model, so the configuration is only read once. If it has a reload file, any
+ * resource may be CORS enabled by a later reload, so every resource without its own {@code OPTIONS} method gets a handler.
+ */
+public class CorsOptionsModelProcessor implements ModelProcessor {
+    private final Set<Class<?>> locatorTargets = Sets.newConcurrentHashSet();
+
+    /**
+     * Whether the configured defaults enable CORS for every resource, or a reloaded configuration could
+     */
+    private final boolean enabledByDefault;
+
+    /**
+     * Path templates whose configured policy enables CORS
+     */
+    private final Set<String> enabledPaths = new HashSet<>();
+
+    /**
+     * Creates a processor for resources that are CORS enabled by annotations
+     */
+    public CorsOptionsModelProcessor() {
+        this(new CorsConfiguration());
+    }
+
+    /**
+     * Creates a processor for resources that are CORS enabled by annotations or by a configuration
+     *
+     * @param configuration
+     *     Configuration whose path policies and defaults may enable CORS for resources without annotations; Only read here, since
+     *     handlers can't be added to the resource model once it is built
+     */
+    public CorsOptionsModelProcessor(@NonNull CorsConfiguration configuration) {
+        enabledByDefault = CorsPolicy.of(configuration.getDefaults()).isEnabled() || configuration.getReloadFile() != null;
+        configuration.getPaths().forEach((path, policy) -> {
+            if (CorsPolicy.of(policy).isEnabled()) {
+                enabledPaths.add(new PathTemplate(path).getTemplate());
+            }
+        });
+    }
+
+    @Override
+    public ResourceModel processResourceModel(ResourceModel resourceModel, Configuration configuration) {
+        for (Resource resource : resourceModel.getResources()) {
+            findLocatorTargets(resource, "");
+        }
+        return enhance(resourceModel, false);
+    }
+
+    @Override
+    public ResourceModel processSubResource(ResourceModel subResourceModel, Configuration configuration) {
+        for (Resource resource : subResourceModel.getResources()) {
+            findLocatorTargets(resource, null);
+        }
+        return enhance(subResourceModel, true);
+    }
+
+    /**
+     * @param parentPath
+     *     Full path of the parent resource, or {@code null} if it isn't known because the resource is a sub-resource
+     */
+    private void findLocatorTargets(Resource resource, String parentPath) {
+        String         path    = parentPath == null ? null : CorsPolicySnapshot.joinPath(parentPath, resource.getPath());
+        ResourceMethod locator = resource.getResourceLocator();
+        if (locator != null && (CorsPolicy.of(locator).isEnabled() || isEnabledByConfiguration(path))) {
+            locatorTargets.add(locator.getInvocable().getRawResponseType());
+        }
+        for (Resource child : resource.getChildResources()) {
+            findLocatorTargets(child, path);
+        }
+    }
+
+    private ResourceModel enhance(ResourceModel resourceModel, boolean subResourceModel) {
+        List<Resource> resources = new ArrayList<>();
+        for (Resource resource : resourceModel.getResources()) {
+            resources.add(enhance(resource, subResourceModel ? null : ""));
+        }
+        return new ResourceModel.Builder(resources, subResourceModel).build();
+    }
+
+    private Resource enhance(Resource resource, String parentPath) {
+        String           path    = parentPath == null ? null : CorsPolicySnapshot.joinPath(parentPath, resource.getPath());
+        Resource.Builder builder = Resource.builder(resource);
+        if (isCorsEnabled(resource, path)) {
+            builder.addMethod(HttpMethod.OPTIONS).handledBy(new PreflightInflector(renderAllow(resource))).extended(true);
+        }
+        for (Resource child : resource.getChildResources()) {
+            builder.replaceChildResource(child, enhance(child, path));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks whether the configuration enables CORS for a resource
+     *
+     * @param path
+     *     Full path of the resource, or {@code null} if it isn't known
+     */
+    private boolean isEnabledByConfiguration(String path) {
+        return enabledByDefault || path != null && enabledPaths.contains(new PathTemplate(path).getTemplate());
+    }
+
+    private boolean isCorsEnabled(Resource resource, String path) {
+        if (resource.getResourceMethods().isEmpty()) {
+            return false;
+        }
+        boolean corsEnabled = isEnabledByConfiguration(path);
+        for (ResourceMethod method : resource.getResourceMethods()) {
+            if (HttpMethod.OPTIONS.equals(method.getHttpMethod())) {
+                return false;
+            }
+            corsEnabled |= CorsPolicy.of(method).isEnabled();
+        }
+        if (corsEnabled) {
+            return true;
+        }
+        for (Class<?> handlerClass : resource.getHandlerClasses()) {
+            if (locatorTargets.contains(handlerClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String renderAllow(Resource resource) {
+        Set<String> methods = new TreeSet<>();
+        methods.add(HttpMethod.OPTIONS);
+        for (ResourceMethod method : resource.getResourceMethods()) {
+            methods.add(method.getHttpMethod());
+            if (HttpMethod.GET.equals(method.getHttpMethod())) {
+                methods.add(HttpMethod.HEAD);
+            }
+        }
+        return CorsPolicy.LIST_JOINER.join(methods).intern();
+    }
+
+    /**
+     * Responds to {@code OPTIONS} requests without an entity
+     */
+    @RequiredArgsConstructor
+    private static final class PreflightInflector implements Inflector<ContainerRequestContext, Response> {
+        @NonNull
+        private final String allow;
+
+        @Override
+        public Response apply(ContainerRequestContext requestContext) {
+            return Response.noContent().header(HttpHeaders.ALLOW, allow).build();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+
+/**
+ * The {@link CachingOriginResolver caching} {@link OriginResolver}s of an application, keyed by the class that {@link
+ * zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins#resolver()} refers to them by
+ */
+@Slf4j
+public final class CorsOriginResolvers {
+    /**
+     * No resolvers
+     */
+    public static final CorsOriginResolvers EMPTY = new CorsOriginResolvers(ImmutableMap.of());
+
+    private final ImmutableMap<Class<? extends OriginResolver>, CachingOriginResolver> resolvers;
+
+    /**
+     * Creates the set of resolvers
+     *
+     * @param resolvers
+     *     Caching resolvers, keyed by the class of the underlying resolver
+     */
+    public CorsOriginResolvers(@NonNull Map<Class<? extends OriginResolver>, CachingOriginResolver> resolvers) {
+        this.resolvers = ImmutableMap.copyOf(resolvers);
+    }
+
+    /**
+     * Decides whether an origin is allowed by the resolver referenced by a policy
+     *
+     * @param resolverClass
+     *     Class of the resolver
+     * @param origin
+     *     Value of the {@code Origin} request header
+     *
+     * @return Decision for the origin; Denied if no resolver of the class was added to the bundle
+     */
+    public OriginDecision resolve(@NonNull Class<? extends OriginResolver> resolverClass, @NonNull String origin) {
+        CachingOriginResolver resolver = resolvers.get(resolverClass);
+        if (resolver == null) {
+            log.warn("No {} was added to the CorsBundle, denying origin {}", resolverClass.getName(), origin);
+            return OriginDecision.deny();
+        }
+        return resolver.resolve(origin);
+    }
+
+    /**
+     * Looks up the caching wrapper of a resolver
+     *
+     * @param resolverClass
+     *     Class of the resolver
+     *
+     * @return Caching resolver, or {@code null} if no resolver of the class was added
+     */
+    public CachingOriginResolver get(@NonNull Class<? extends OriginResolver> resolverClass) {
+        return resolvers.get(resolverClass);
+    }
+}
@@ -0,0 +1,465 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Immutable view of the CORS annotations that apply to a resource method. Each attribute is {@code null} if the corresponding annotation
+ * was not found, so that policies from parent resource locators can be merged in with {@link #merge(CorsPolicy)}. Header values that are
+ * fully determined by the annotations are rendered once when the policy is built, so they can be reused for every response.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class CorsPolicy {
+    /**
+     * Policy for a resource that has no CORS annotations
+     */
+    public static final CorsPolicy EMPTY = new CorsPolicy(null, null, null, null, null, null, false);
+
+    /**
+     * Separator used when rendering header values that contain lists
+     */
+    static final Joiner LIST_JOINER = Joiner.on(", ");
+
+    /**
+     * Canonical renderings of requested header lists, shared by all canonical policies that allow any header
+     */
+    private static final CanonicalHeaderListCache CANONICAL_HEADER_LISTS = new CanonicalHeaderListCache();
+
+    /**
+     * Matcher for the origins from {@link CorsAllowOrigins}, or {@code null} if CORS is not enabled
+     */
+    private final OriginMatcher allowOrigins;
+
+    /**
+     * Headers from {@link CorsExposeHeaders}, or {@code null} if headers are not exposed
+     */
+    private final ImmutableList<String> exposeHeaders;
+
+    /**
+     * Headers from {@link CorsAllowHeaders}, or {@code null} if non-simple headers are not accepted
+     */
+    private final HeaderNameSet allowHeaders;
+
+    /**
+     * {@code true} if {@link CorsAllowCredentials} is present, {@code false} if credentials are disallowed by configuration, or {@code
+     * null} if not set
+     */
+    @Getter(AccessLevel.NONE)
+    private final Boolean allowCredentials;
+
+    /**
+     * Value of {@link CorsMaxAge}, or {@code null} if not present
+     */
+    private final Long maxAge;
+
+    /**
+     * Per-origin max-age from {@link CorsConfiguration#getMaxAgeTiers()}, or {@code null} if there are no tiers or {@link #maxAge} is set
+     */
+    @Getter(AccessLevel.NONE)
+    private final MaxAgeTiers maxAgeTiers;
+
+    /**
+     * Rendered value of the {@code Access-Control-Expose-Headers} header, or {@code null} if it must be computed from the response
+     */
+    private final String exposeHeadersValue;
+
+    /**
+     * Rendered value of the {@code Access-Control-Max-Age} header, or {@code null} if not present
+     */
+    private final String maxAgeValue;
+
+    /**
+     * Value of the {@code Vary} header for a standard request, or {@code null} if the response doesn't depend on the request's origin
+     * (CORS is disabled, or every origin is allowed without credentials, so {@code *} is returned to all of them)
+     */
+    private final String varyValue;
+
+    /**
+     * Value of the {@code Vary} header for a pre-flight request, or {@code null} if CORS is not enabled
+     */
+    private final String preflightVaryValue;
+
+    /**
+     * Whether header values are rendered in canonical form, see {@link #canonical()}
+     */
+    private final boolean canonical;
+
+    private CorsPolicy(
+        OriginMatcher allowOrigins,
+        ImmutableList<String> exposeHeaders,
+        HeaderNameSet allowHeaders,
+        Boolean allowCredentials,
+        Long maxAge,
+        MaxAgeTiers maxAgeTiers,
+        boolean canonical
+    ) {
+        this.allowOrigins = allowOrigins;
+        this.exposeHeaders = exposeHeaders;
+        this.allowHeaders = allowHeaders;
+        this.allowCredentials = allowCredentials;
+        this.maxAge = maxAge;
+        this.maxAgeTiers = maxAgeTiers;
+        this.canonical = canonical;
+        this.exposeHeadersValue = render(exposeHeaders);
+        this.maxAgeValue = maxAge == null ? null : maxAge.toString().intern();
+        boolean anyOrigin = allowOrigins != null && allowOrigins.isWildcard() && !Boolean.TRUE.equals(allowCredentials);
+        this.varyValue = allowOrigins == null || anyOrigin ? null : CorsResponseFilter.VARY_ORIGIN;
+        if (allowOrigins == null) {
+            this.preflightVaryValue = null;
+        } else {
+            this.preflightVaryValue = anyOrigin ? CorsResponseFilter.VARY_PREFLIGHT_ANY_ORIGIN : CorsResponseFilter.VARY_PREFLIGHT;
+        }
+    }
+
+    /**
+     * Renders a list of header names as a header value
+     *
+     * @param headers
+     *     List of header names, may be {@code null}
+     *
+     * @return Interned header value, or {@code null} if {@code headers} is {@code null} or empty
+     */
+    static String render(Iterable<String> headers) {
+        if (headers == null || !headers.iterator().hasNext()) {
+            return null;
+        }
+        return LIST_JOINER.join(headers).intern();
+    }
+
+    /**
+     * Puts a list of header names in canonical form
+     *
+     * @param headers
+     *     Header names
+     *
+     * @return Names in lower case, sorted, and without duplicates
+     */
+    static ImmutableList<String> canonicalize(Iterable<String> headers) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String header : headers) {
+            names.add(header.toLowerCase(Locale.ROOT));
+        }
+        return ImmutableList.copyOf(names);
+    }
+
+    /**
+     * Builds the policy for a single resource method from its annotations; Annotations on the handling method take precedence over those
+     * on the handler class. If {@link CorsPolicyProcessor} generated registries for the classes involved, the policy is taken from them,
+     * and the annotations are only read reflectively otherwise.
+     *
+     * @param method
+     *     Resource method to compile a policy for
+     *
+     * @return Policy for the resource method, not including any policies inherited from resource locators
+     */
+    public static CorsPolicy of(@NonNull ResourceMethod method) {
+        CorsPolicy generated = GeneratedPolicyLoader.find(method);
+        return generated == null ? fromAnnotations(method) : generated;
+    }
+
+    /**
+     * Builds the policy for a single resource method by reading its annotations reflectively
+     */
+    static CorsPolicy fromAnnotations(ResourceMethod method) {
+        CorsAllowOrigins     allowOrigins     = findResourceAnnotation(method, CorsAllowOrigins.class);
+        CorsExposeHeaders    exposeHeaders    = findResourceAnnotation(method, CorsExposeHeaders.class);
+        CorsAllowHeaders     allowHeaders     = findResourceAnnotation(method, CorsAllowHeaders.class);
+        CorsAllowCredentials allowCredentials = findResourceAnnotation(method, CorsAllowCredentials.class);
+        CorsMaxAge           maxAge           = findResourceAnnotation(method, CorsMaxAge.class);
+        return of(
+            allowOrigins == null ? null : Arrays.asList(allowOrigins.value()),
+            allowOrigins == null || allowOrigins.resolver() == OriginResolver.class ? null : allowOrigins.resolver(),
+            exposeHeaders == null ? null : Arrays.asList(exposeHeaders.value()),
+            allowHeaders == null ? null : Arrays.asList(allowHeaders.value()),
+            allowCredentials != null,
+            maxAge == null ? null : maxAge.value()
+        );
+    }
+
+    /**
+     * Builds a policy from configuration
+     *
+     * @param configuration
+     *     Policy configuration
+     *
+     * @return Policy with the configured attributes
+     */
+    public static CorsPolicy of(@NonNull CorsPolicyConfiguration configuration) {
+        return create(
+            configuration.getAllowOrigins(),
+            null,
+            configuration.getExposeHeaders(),
+            configuration.getAllowHeaders(),
+            configuration.getAllowCredentials(),
+            configuration.getMaxAge()
+        );
+    }
+
+    /**
+     * Builds a policy from the values of each attribute, where {@code null} means that the attribute isn't set; Used by the registries that
+     * {@link CorsPolicyProcessor} generates.
+     *
+     * @param allowOrigins
+     *     Values of {@link CorsAllowOrigins}
+     * @param originResolver
+     *     Resolver of {@link CorsAllowOrigins}, or {@code null} if it has none
+     * @param exposeHeaders
+     *     Values of {@link CorsExposeHeaders}
+     * @param allowHeaders
+     *     Values of {@link CorsAllowHeaders}
+     * @param allowCredentials
+     *     Whether {@link CorsAllowCredentials} is present
+     * @param maxAge
+     *     Value of {@link CorsMaxAge}
+     *
+     * @return Policy with the given attributes
+     */
+    public static CorsPolicy of(
+        Collection<String> allowOrigins,
+        Class<? extends OriginResolver> originResolver,
+        Collection<String> exposeHeaders,
+        Collection<String> allowHeaders,
+        boolean allowCredentials,
+        Long maxAge
+    ) {
+        return create(allowOrigins, originResolver, exposeHeaders, allowHeaders, allowCredentials ? Boolean.TRUE : null, maxAge);
+    }
+
+    /**
+     * Builds a policy where {@code allowCredentials} may also be set to {@code false}, which overrides {@link CorsAllowCredentials} when
+     * merged
+     */
+    private static CorsPolicy create(
+        Collection<String> allowOrigins,
+        Class<? extends OriginResolver> originResolver,
+        Collection<String> exposeHeaders,
+        Collection<String> allowHeaders,
+        Boolean allowCredentials,
+        Long maxAge
+    ) {
+        if (allowOrigins == null && exposeHeaders == null && allowHeaders == null && allowCredentials == null && maxAge == null) {
+            return EMPTY;
+        }
+        return new CorsPolicy(
+            allowOrigins == null ? null : OriginMatcher.of(allowOrigins, originResolver),
+            exposeHeaders == null ? null : ImmutableList.copyOf(exposeHeaders),
+            allowHeaders == null ? null : HeaderNameSet.of(allowHeaders),
+            allowCredentials,
+            maxAge,
+            null,
+            false
+        );
+    }
+
+    /**
+     * Builds the default policy of a configuration, which supplies the attributes that aren't set by annotations or path overrides
+     *
+     * @param configuration
+     *     Configuration with the defaults and max-age tiers
+     * @param defaultMaxAge
+     *     Max-age used if neither the configured defaults nor a max-age tier sets one, or {@code null} if there is none
+     *
+     * @return Default policy
+     */
+    static CorsPolicy defaults(@NonNull CorsConfiguration configuration, Long defaultMaxAge) {
+        CorsPolicy  policy = of(configuration.getDefaults());
+        Long        maxAge = policy.maxAge != null ? policy.maxAge : defaultMaxAge;
+        MaxAgeTiers tiers  = MaxAgeTiers.of(configuration.getMaxAgeTiers(), maxAge);
+        if (tiers == null && Objects.equals(maxAge, policy.maxAge)) {
+            return policy;
+        }
+        return new CorsPolicy(
+            policy.allowOrigins,
+            policy.exposeHeaders,
+            policy.allowHeaders,
+            policy.allowCredentials,
+            tiers == null ? maxAge : null,
+            tiers,
+            false
+        );
+    }
+
+    /**
+     * Attempts to find an annotation on a jersey resource method by first looking at the invocable's handler method, and if not found
+     * there,  then at the handling class itself.
+     *
+     * @param method
+     *     Resource method to search for the {@code annotationType}
+     * @param annotationType
+     *     Type of annotation
+     *
+     * @return Instance of the annotation if it was found, or {@code null} if the annotation does not exist on the resource
+     */
+    static <T extends Annotation> T findResourceAnnotation(ResourceMethod method, Class<T> annotationType) {
+        T annotation = method.getInvocable().getHandlingMethod().getAnnotation(annotationType);
+        if (annotation == null) {
+            return method.getInvocable().getHandler().getHandlerClass().getAnnotation(annotationType);
+        }
+        return annotation;
+    }
+
+    /**
+     * Fills in any attributes missing from this policy with those from a policy further away from the invoked resource method, such as one
+     * belonging to a resource locator.
+     *
+     * @param parent
+     *     Policy of the enclosing resource
+     *
+     * @return Merged policy, where attributes of this policy take precedence
+     */
+    public CorsPolicy merge(@NonNull CorsPolicy parent) {
+        if (parent == EMPTY || isComplete()) {
+            return this;
+        }
+        if (this == EMPTY) {
+            return parent;
+        }
+        return new CorsPolicy(
+            allowOrigins != null ? allowOrigins : parent.allowOrigins,
+            exposeHeaders != null ? exposeHeaders : parent.exposeHeaders,
+            allowHeaders != null ? allowHeaders : parent.allowHeaders,
+            allowCredentials != null ? allowCredentials : parent.allowCredentials,
+            maxAge != null ? maxAge : parent.maxAge,
+            maxAge != null || maxAgeTiers != null ? maxAgeTiers : parent.maxAgeTiers,
+            canonical && parent.canonical
+        );
+    }
+
+    /**
+     * Converts this policy to one that renders every header value in a single canonical form, so that HTTP/2 connections can index the
+     * values with HPACK and send them as a single byte on later responses:
+     * <ul>
+     * <li>Exposed and allowed header names are rendered in lower case and sorted, with each value interned once</li>
+     * <li>If only some of the requested headers are allowed, the full list of allowed headers is sent instead of the matching subset</li>
+     * <li>If any header is allowed, the requested headers are echoed in lower case and sorted rather than as the client sent them</li>
+     * </ul>
+     *
+     * @return Canonical policy
+     */
+    public CorsPolicy canonical() {
+        if (canonical || this == EMPTY) {
+            return this;
+        }
+        return new CorsPolicy(
+            allowOrigins,
+            exposeHeaders == null ? null : canonicalize(exposeHeaders),
+            allowHeaders == null ? null : HeaderNameSet.of(canonicalize(allowHeaders.getNames())),
+            allowCredentials,
+            maxAge,
+            maxAgeTiers,
+            true
+        );
+    }
+
+    /**
+     * @return {@code true} if credentials are allowed
+     */
+    public boolean isAllowCredentials() {
+        return Boolean.TRUE.equals(allowCredentials);
+    }
+
+    /**
+     * Checks if this policy lists an origin by name, as opposed to allowing it by the wildcard, a subdomain pattern or a resolver
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     *
+     * @return {@code true} if the origin is listed
+     */
+    public boolean isListedOrigin(String origin) {
+        return allowOrigins != null && allowOrigins.isListed(origin);
+    }
+
+    /**
+     * @return Class of the {@link OriginResolver} that decides whether unlisted origins are allowed, or {@code null} if there is none
+     */
+    public Class<? extends OriginResolver> getOriginResolver() {
+        return allowOrigins == null ? null : allowOrigins.getResolver();
+    }
+
+    /**
+     * Computes the {@code Access-Control-Allow-Origin} header value for a request from the listed origins
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     *
+     * @return Header value, or {@code null} if CORS is not enabled or the origin is not listed (it may still be allowed by the {@link
+     * #getOriginResolver() resolver})
+     */
+    public String getAllowOriginValue(String origin) {
+        if (allowOrigins == null || !allowOrigins.matches(origin)) {
+            return null;
+        }
+        return allowOrigins.isWildcard() ? CorsResponseFilter.WILDCARD_ORIGIN : origin;
+    }
+
+    /**
+     * Computes the {@code Access-Control-Allow-Headers} header value for a pre-flight request; If every requested header is allowed, the
+     * pre-rendered value is returned without allocating.
+     *
+     * @param requestedHeaders
+     *     Value of the {@code Access-Control-Request-Headers} request header, may be {@code null}
+     *
+     * @return Header value, or {@code null} if none of the requested headers are allowed
+     */
+    public String getAllowHeadersValue(String requestedHeaders) {
+        if (requestedHeaders == null || requestedHeaders.isEmpty() || allowHeaders == null) {
+            return null;
+        }
+        if (allowHeaders.isEmpty()) {
+            return canonical ? CANONICAL_HEADER_LISTS.render(requestedHeaders) : requestedHeaders;
+        }
+        switch (allowHeaders.match(requestedHeaders)) {
+            case ALL:
+                return allowHeaders.getValue();
+            case SOME:
+                return canonical ? allowHeaders.getValue() : allowHeaders.retain(requestedHeaders);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Renders the {@code Access-Control-Max-Age} header for a pre-flight request; A max-age set by annotations or path overrides is the
+     * same for every origin, otherwise it comes from the first max-age tier that matches the origin, falling back to the default max-age
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     *
+     * @return Header value, or {@code null} if none should be sent
+     */
+    public String getMaxAgeValue(String origin) {
+        return maxAgeTiers == null ? maxAgeValue : maxAgeTiers.getValue(origin);
+    }
+
+    /**
+     * @return {@code true} if this policy enables CORS, i.e. {@link CorsAllowOrigins} was found
+     */
+    public boolean isEnabled() {
+        return allowOrigins != null;
+    }
+
+    private boolean isComplete() {
+        return allowOrigins != null && exposeHeaders != null && allowHeaders != null && allowCredentials != null && maxAge != null;
+    }
+}
@@ -0,0 +1,44 @@
+package zone.dragon.dropwizard.cors;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Configuration of a CORS policy; Each attribute corresponds to one of the CORS annotations, and is left unset (the default) if the
+ * attribute should be taken from somewhere else.
+ */
+@Data
+public class CorsPolicyConfiguration {
+    /**
+     * Same as {@link zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins}
+     */
+    @JsonProperty
+    private List<String> allowOrigins;
+
+    /**
+     * Same as {@link zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders}
+     */
+    @JsonProperty
+    private List<String> exposeHeaders;
+
+    /**
+     * Same as {@link zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders}
+     */
+    @JsonProperty
+    private List<String> allowHeaders;
+
+    /**
+     * Same as {@link zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials}; {@code false} disallows credentials even if the
+     * annotations allow them
+     */
+    @JsonProperty
+    private Boolean allowCredentials;
+
+    /**
+     * Same as {@link zone.dragon.dropwizard.cors.annotations.CorsMaxAge}
+     */
+    @JsonProperty
+    private Long maxAge;
+}
@@ -0,0 +1,87 @@
+package zone.dragon.dropwizard.cors;
+
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Where the allowed origins of an effective {@link CorsPolicy} came from; Only computed for diagnostics, such as flight recorder events,
+ * since it re-reads the annotations of the resource method.
+ */
+enum CorsPolicyLevel {
+    /**
+     * {@link CorsAllowOrigins} on the resource method
+     */
+    METHOD,
+    /**
+     * {@link CorsAllowOrigins} on the resource class
+     */
+    CLASS,
+    /**
+     * Policy of a resource locator that leads to the resource
+     */
+    LOCATOR,
+    /**
+     * {@link CorsConfiguration} path override or defaults
+     */
+    CONFIGURATION,
+    /**
+     * CORS is not enabled
+     */
+    NONE;
+
+    /**
+     * Finds the level that the allowed origins of a resource method's effective policy came from
+     *
+     * @param registry
+     *     Registry that compiled the policy
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the resource to the furthest
+     * @param method
+     *     Resource method
+     *
+     * @return Level of the allowed origins
+     */
+    static CorsPolicyLevel of(CorsPolicyRegistry registry, List<ResourceMethod> locators, ResourceMethod method) {
+        OriginMatcher allowOrigins = registry.getPolicy(method).getAllowOrigins();
+        if (allowOrigins != null) {
+            if (!Objects.equals(allowOrigins, CorsPolicy.of(method).getAllowOrigins())) {
+                // A path override replaced the annotations
+                return CONFIGURATION;
+            }
+            return method.getInvocable().getHandlingMethod().isAnnotationPresent(CorsAllowOrigins.class) ? METHOD : CLASS;
+        }
+        for (ResourceMethod locator : locators) {
+            if (registry.getPolicy(locator).isEnabled()) {
+                return LOCATOR;
+            }
+        }
+        return registry.getPolicy(locators, method).isEnabled() ? CONFIGURATION : NONE;
+    }
+
+    /**
+     * Finds the level that the allowed origins of the method requested by a pre-flight request came from
+     *
+     * @param registry
+     *     Registry that compiled the policy
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the resource to the furthest
+     * @param resource
+     *     Resource that the pre-flight request was matched to
+     * @param httpMethod
+     *     Value of the {@code Access-Control-Request-Method} header, may be {@code null}
+     *
+     * @return Level of the allowed origins, or {@link #NONE} if the resource has no such method
+     */
+    static CorsPolicyLevel of(CorsPolicyRegistry registry, List<ResourceMethod> locators, Resource resource, String httpMethod) {
+        for (ResourceMethod resourceMethod : resource.getResourceMethods()) {
+            if (!resourceMethod.isExtended() && resourceMethod.getHttpMethod().equals(httpMethod)) {
+                return of(registry, locators, resourceMethod);
+            }
+        }
+        return NONE;
+    }
+}
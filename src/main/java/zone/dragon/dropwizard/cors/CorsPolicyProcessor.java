@@ -0,0 +1,435 @@
+package zone.dragon.dropwizard.cors;
+
+import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.WILDCARD_ORIGIN;
+
+/**
+ * Generates a {@link GeneratedCorsPolicies} registry at build time for every class that has CORS annotations on itself or its methods, so
+ * that {@link CorsPolicy#of(org.glassfish.jersey.server.model.ResourceMethod)} can build policies without reading annotations
+ * reflectively, and reports annotations that would fail or misbehave at runtime as compiler diagnostics:
+ * <ul>
+ * <li>Origin patterns that aren't in the form {@code scheme://*.host[:port]}, empty origins, and empty or malformed header names are
+ * errors</li>
+ * <li>A {@link CorsMaxAge} below {@link CorsMaxAge#DISABLED} is an error</li>
+ * <li>{@code "*"} together with {@link CorsAllowCredentials}, which answers with {@code Access-Control-Allow-Origin: *} that browsers
+ * reject for credentialed requests, is a warning, or an error if the {@value #STRICT_OPTION} option is {@code true}</li>
+ * <li>{@code "*"} together with a resolver, where it is ignored, is a warning</li>
+ * </ul>
+ * The classes that have a registry are listed in the {@value GeneratedPolicyLoader#INDEX} resource, which {@link CorsBundle} reads at
+ * startup, so that classes compiled without the processor are never looked up. The processor isn't registered as a service in the bundle's
+ * jar, so that it doesn't run in every build that depends on the bundle; The jar with the {@code processor} classifier registers it.
+ */
+@SupportedAnnotationTypes("zone.dragon.dropwizard.cors.annotations.*")
+@SupportedOptions(CorsPolicyProcessor.STRICT_OPTION)
+public class CorsPolicyProcessor extends AbstractProcessor {
+    /**
+     * Processor option that turns {@code "*"} together with {@link CorsAllowCredentials} into an error
+     */
+    public static final String STRICT_OPTION = "zone.dragon.dropwizard.cors.strict";
+
+    private static final String POLICY_CLASS = CorsPolicy.class.getName();
+
+    private final Set<String> generated = new HashSet<>();
+
+    /**
+     * Binary names of the classes whose registries were generated by this compilation
+     */
+    private final Set<String> indexed = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.METHOD) {
+                    types.add((TypeElement) element.getEnclosingElement());
+                } else if (element instanceof TypeElement) {
+                    types.add((TypeElement) element);
+                }
+            }
+        }
+        for (TypeElement type : types) {
+            process(type);
+        }
+        return false;
+    }
+
+    private void process(TypeElement type) {
+        String binaryName   = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String registryName = GeneratedCorsPolicies.registryName(binaryName);
+        if (!generated.add(registryName)) {
+            return;
+        }
+        Attributes              classAttributes  = validate(type, null);
+        Map<String, Attributes> methodAttributes = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            Attributes attributes = validate(method, classAttributes);
+            if (!attributes.isEmpty()) {
+                methodAttributes.put(signature(method), attributes);
+            }
+        }
+        try {
+            write(type, registryName, classAttributes, methodAttributes);
+            indexed.add(binaryName);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                String.format("Could not generate CORS policies %s: %s", registryName, e.getMessage()),
+                type
+            );
+        }
+    }
+
+    /**
+     * Reads and checks the CORS annotations on a class or method
+     *
+     * @param element
+     *     Annotated class or method
+     * @param classAttributes
+     *     Attributes of the enclosing class if {@code element} is a method, or {@code null} if it is the class
+     *
+     * @return Attributes of the element
+     */
+    private Attributes validate(Element element, Attributes classAttributes) {
+        Attributes attributes = Attributes.of(element);
+        if (attributes.allowOrigins != null) {
+            for (String origin : attributes.allowOrigins) {
+                validateOrigin(element, origin);
+            }
+            if (attributes.resolver != null && attributes.allowOrigins.contains(WILDCARD_ORIGIN)) {
+                warn(element, "\"*\" is ignored by @CorsAllowOrigins when a resolver is set");
+            }
+        }
+        validateHeaders(element, "@CorsExposeHeaders", attributes.exposeHeaders);
+        validateHeaders(element, "@CorsAllowHeaders", attributes.allowHeaders);
+        if (attributes.maxAge != null && attributes.maxAge < CorsMaxAge.DISABLED) {
+            error(element, String.format("@CorsMaxAge must be at least %d, but is %d", CorsMaxAge.DISABLED, attributes.maxAge));
+        }
+        // Report the wildcard with credentials once, on the element that completes the combination
+        boolean wildcard    = attributes.allowsAnyOrigin();
+        boolean credentials = attributes.allowCredentials;
+        if (classAttributes != null && attributes.allowOrigins == null) {
+            wildcard = classAttributes.allowsAnyOrigin();
+        }
+        if (classAttributes != null && !credentials) {
+            credentials = classAttributes.allowCredentials;
+        }
+        boolean reportedOnClass = classAttributes != null && classAttributes.allowsAnyOrigin() && classAttributes.allowCredentials;
+        if (wildcard && credentials && !reportedOnClass) {
+            String message = "@CorsAllowOrigins(\"*\") with @CorsAllowCredentials sends Access-Control-Allow-Origin: *, "
+                             + "which browsers reject for credentialed requests; List the trusted origins instead";
+            if (Boolean.parseBoolean(processingEnv.getOptions().get(STRICT_OPTION))) {
+                error(element, message);
+            } else {
+                warn(element, message);
+            }
+        }
+        return attributes;
+    }
+
+    private void validateOrigin(Element element, String origin) {
+        if (origin.trim().isEmpty()) {
+            error(element, "@CorsAllowOrigins must not contain empty origins");
+        } else if (!WILDCARD_ORIGIN.equals(origin) && OriginTrie.isPattern(origin)) {
+            try {
+                OriginMatcher.of(Collections.singletonList(origin));
+            } catch (IllegalArgumentException e) {
+                error(element, e.getMessage());
+            }
+        }
+    }
+
+    private void validateHeaders(Element element, String annotation, List<String> headers) {
+        if (headers == null) {
+            return;
+        }
+        for (String header : headers) {
+            if (!isToken(header)) {
+                error(element, String.format("%s contains \"%s\", which is not a valid header name", annotation, header));
+            }
+        }
+    }
+
+    /**
+     * Checks whether a header name is a non-empty token, as defined by RFC 7230
+     */
+    private static boolean isToken(String header) {
+        if (header.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c <= ' ' || c >= 127 || "\"(),/:;<=>?@[\\]{}".indexOf(c) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void warn(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Writes the list of classes with a registry, keeping the classes listed by an earlier build into the same output directory, so that an
+     * incremental build that only recompiles some classes doesn't drop the others; Classes that were deleted since are skipped by {@link
+     * GeneratedPolicyLoader} when their registry can't be found.
+     */
+    private void writeIndex() {
+        if (indexed.isEmpty()) {
+            return;
+        }
+        Filer       filer   = processingEnv.getFiler();
+        Set<String> classes = new TreeSet<>(indexed);
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", GeneratedPolicyLoader.INDEX);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        classes.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // No index from an earlier build
+        }
+        try (PrintWriter out = new PrintWriter(
+            filer.createResource(StandardLocation.CLASS_OUTPUT, "", GeneratedPolicyLoader.INDEX).openWriter()
+        )) {
+            for (String name : classes) {
+                out.println(name);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                String.format("Could not write the index of CORS policies %s: %s", GeneratedPolicyLoader.INDEX, e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * @return Signature of a method in the form used by {@link GeneratedCorsPolicies#getMethodPolicy(String)}
+     */
+    private String signature(ExecutableElement method) {
+        StringBuilder                   signature  = new StringBuilder(method.getSimpleName()).append('(');
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(typeName(parameters.get(i).asType()));
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * @return Name of the erasure of a type, in the form returned by {@link Class#getTypeName()}
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        switch (erased.getKind()) {
+            case ARRAY:
+                return typeName(((ArrayType) erased).getComponentType()) + "[]";
+            case DECLARED:
+                return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) erased).asElement()).toString();
+            default:
+                return erased.toString();
+        }
+    }
+
+    private void write(TypeElement type, String registryName, Attributes classAttributes, Map<String, Attributes> methodAttributes)
+        throws IOException {
+        int    packageEnd = registryName.lastIndexOf('.');
+        String simpleName = registryName.substring(packageEnd + 1);
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(registryName, type).openWriter())) {
+            if (packageEnd > 0) {
+                out.printf("package %s;%n%n", registryName.substring(0, packageEnd));
+            }
+            String generatedAnnotation = generatedAnnotation();
+            if (generatedAnnotation != null) {
+                out.printf("@%s(\"%s\")%n", generatedAnnotation, CorsPolicyProcessor.class.getName());
+            }
+            out.printf("public final class %s implements %s {%n", simpleName, GeneratedCorsPolicies.class.getName());
+            out.printf("    private static final %s CLASS_POLICY = %s;%n", POLICY_CLASS, policy(classAttributes));
+            out.printf(
+                "    private static final java.util.Map<java.lang.String, %s> METHOD_POLICIES = new java.util.HashMap<>();%n%n",
+                POLICY_CLASS
+            );
+            out.printf("    static {%n");
+            for (Map.Entry<String, Attributes> entry : methodAttributes.entrySet()) {
+                out.printf("        METHOD_POLICIES.put(%s, %s);%n", literal(entry.getKey()), policy(entry.getValue()));
+            }
+            out.printf("    }%n%n");
+            out.printf("    @java.lang.Override%n");
+            out.printf("    public %s getClassPolicy() {%n", POLICY_CLASS);
+            out.printf("        return CLASS_POLICY;%n");
+            out.printf("    }%n%n");
+            out.printf("    @java.lang.Override%n");
+            out.printf("    public %s getMethodPolicy(java.lang.String signature) {%n", POLICY_CLASS);
+            out.printf("        %s policy = METHOD_POLICIES.get(signature);%n", POLICY_CLASS);
+            out.printf("        return policy == null ? %s.EMPTY : policy;%n", POLICY_CLASS);
+            out.printf("    }%n");
+            out.printf("}%n");
+        }
+    }
+
+    /**
+     * @return Name of the {@code @Generated} annotation available to the code being compiled, or {@code null} if there is none
+     */
+    private String generatedAnnotation() {
+        for (String name : new String[]{"javax.annotation.Generated", "javax.annotation.processing.Generated"}) {
+            if (processingEnv.getElementUtils().getTypeElement(name) != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Expression that builds the policy for a set of attributes
+     */
+    private String policy(Attributes attributes) {
+        if (attributes.isEmpty()) {
+            return POLICY_CLASS + ".EMPTY";
+        }
+        return String.format(
+            "%s.of(%s, %s, %s, %s, %s, %s)",
+            POLICY_CLASS,
+            list(attributes.allowOrigins),
+            attributes.resolver == null ? "null" : attributes.resolver + ".class",
+            list(attributes.exposeHeaders),
+            list(attributes.allowHeaders),
+            attributes.allowCredentials,
+            attributes.maxAge == null ? "null" : attributes.maxAge + "L"
+        );
+    }
+
+    private String list(List<String> values) {
+        if (values == null) {
+            return "null";
+        }
+        StringBuilder list = new StringBuilder("java.util.Arrays.<java.lang.String>asList(");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                list.append(", ");
+            }
+            list.append(literal(values.get(i)));
+        }
+        return list.append(')').toString();
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    /**
+     * Values of the CORS annotations on a single class or method, where {@code null} means that the annotation isn't present
+     */
+    private static final class Attributes {
+        private List<String> allowOrigins;
+        private String       resolver;
+        private List<String> exposeHeaders;
+        private List<String> allowHeaders;
+        private boolean      allowCredentials;
+        private Long         maxAge;
+
+        private static Attributes of(Element element) {
+            Attributes       attributes   = new Attributes();
+            CorsAllowOrigins allowOrigins = element.getAnnotation(CorsAllowOrigins.class);
+            if (allowOrigins != null) {
+                attributes.allowOrigins = Arrays.asList(allowOrigins.value());
+                attributes.resolver = resolverName(allowOrigins);
+            }
+            CorsExposeHeaders exposeHeaders = element.getAnnotation(CorsExposeHeaders.class);
+            if (exposeHeaders != null) {
+                attributes.exposeHeaders = Arrays.asList(exposeHeaders.value());
+            }
+            CorsAllowHeaders allowHeaders = element.getAnnotation(CorsAllowHeaders.class);
+            if (allowHeaders != null) {
+                attributes.allowHeaders = Arrays.asList(allowHeaders.value());
+            }
+            attributes.allowCredentials = element.getAnnotation(CorsAllowCredentials.class) != null;
+            CorsMaxAge maxAge = element.getAnnotation(CorsMaxAge.class);
+            if (maxAge != null) {
+                attributes.maxAge = maxAge.value();
+            }
+            return attributes;
+        }
+
+        /**
+         * @return Canonical name of the resolver class, or {@code null} if the annotation doesn't set one
+         */
+        private static String resolverName(CorsAllowOrigins allowOrigins) {
+            try {
+                return resolverName(allowOrigins.resolver().getCanonicalName());
+            } catch (MirroredTypeException e) {
+                // Classes being compiled can't be loaded, so javac only gives access to their mirror
+                TypeElement resolver = (TypeElement) ((DeclaredType) e.getTypeMirror()).asElement();
+                return resolverName(resolver.getQualifiedName().toString());
+            }
+        }
+
+        private static String resolverName(String name) {
+            return OriginResolver.class.getCanonicalName().equals(name) ? null : name;
+        }
+
+        private boolean allowsAnyOrigin() {
+            return allowOrigins != null && resolver == null && allowOrigins.contains(WILDCARD_ORIGIN);
+        }
+
+        private boolean isEmpty() {
+            return allowOrigins == null && exposeHeaders == null && allowHeaders == null && !allowCredentials && maxAge == null;
+        }
+    }
+}
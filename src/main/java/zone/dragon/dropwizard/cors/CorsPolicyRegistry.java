@@ -0,0 +1,249 @@
+package zone.dragon.dropwizard.cors;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Compiles a {@link CorsPolicy} for every resource method in the Jersey resource model once the application has been initialized, so that
+ * annotations don't need to be reflected upon for every request. The compiled policies are held in an immutable snapshot that is replaced
+ * as a whole when the {@link CorsConfiguration} is {@link #reload(CorsConfiguration) reloaded}; Lookups read a single volatile reference
+ * and never lock.
+ * <p>
+ * With warm-up enabled, policies are compiled in parallel on a dedicated fork-join pool, and the sub-resources returned by resource
+ * locators are resolved from the locators' return types and compiled too, so that the first requests to reach them don't have to reflect
+ * on their annotations.
+ */
+@Slf4j
+public class CorsPolicyRegistry implements ApplicationEventListener {
+    private final    int                warmUpParallelism;
+    private final    Long               defaultMaxAge;
+    private volatile CorsPolicySnapshot snapshot = CorsPolicySnapshot.EMPTY;
+    private          CorsConfiguration  configuration;
+    private          ResourceModel      resourceModel;
+    private          Timer              compileTimer;
+
+    /**
+     * Creates a registry that only uses CORS annotations
+     */
+    public CorsPolicyRegistry() {
+        this(new CorsConfiguration());
+    }
+
+    /**
+     * Creates a registry
+     *
+     * @param configuration
+     *     Configuration that supplements the CORS annotations
+     */
+    public CorsPolicyRegistry(@NonNull CorsConfiguration configuration) {
+        this(configuration, 0);
+    }
+
+    /**
+     * Creates a registry
+     *
+     * @param configuration
+     *     Configuration that supplements the CORS annotations
+     * @param warmUpParallelism
+     *     Number of threads to compile policies on when warming up; {@code 0} compiles them on the calling thread, without warming up
+     *     sub-resources
+     */
+    public CorsPolicyRegistry(@NonNull CorsConfiguration configuration, int warmUpParallelism) {
+        this(configuration, warmUpParallelism, null);
+    }
+
+    /**
+     * Creates a registry
+     *
+     * @param configuration
+     *     Configuration that supplements the CORS annotations
+     * @param warmUpParallelism
+     *     Number of threads to compile policies on when warming up; {@code 0} compiles them on the calling thread, without warming up
+     *     sub-resources
+     * @param defaultMaxAge
+     *     Max-age in seconds of pre-flight responses for resources that don't set one, if the configuration doesn't set one either; {@code
+     *     null} to not send one
+     */
+    public CorsPolicyRegistry(@NonNull CorsConfiguration configuration, int warmUpParallelism, Long defaultMaxAge) {
+        Preconditions.checkArgument(warmUpParallelism >= 0, "warmUpParallelism must not be negative");
+        Preconditions.checkArgument(defaultMaxAge == null || defaultMaxAge >= -1, "defaultMaxAge must be at least -1");
+        this.configuration = configuration;
+        this.warmUpParallelism = warmUpParallelism;
+        this.defaultMaxAge = defaultMaxAge;
+    }
+
+    /**
+     * Registers a timer for compiling policies, and gauges for the number of compiled policies, in a registry
+     *
+     * @param registry
+     *     Registry to register the metrics with
+     */
+    public synchronized void registerMetrics(@NonNull MetricRegistry registry) {
+        compileTimer = registry.timer(name(CorsPolicyRegistry.class, "compile"));
+        registry.register(name(CorsPolicyRegistry.class, "policies"), (Gauge<Integer>) () -> snapshot.size());
+        registry.register(name(CorsPolicyRegistry.class, "subResourcePolicies"), (Gauge<Integer>) () -> snapshot.subResourceSize());
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+        if (event.getType() == ApplicationEvent.Type.INITIALIZATION_FINISHED) {
+            compile(event.getResourceModel());
+        }
+    }
+
+    /**
+     * Compiles policies for every resource and resource method in a resource model, replacing any previously compiled policies
+     *
+     * @param resourceModel
+     *     Resource model of the application
+     */
+    synchronized void compile(@NonNull ResourceModel resourceModel) {
+        this.resourceModel = resourceModel;
+        publish();
+    }
+
+    /**
+     * @return Current configuration
+     */
+    synchronized CorsConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Replaces the configuration and recompiles all policies; Requests that are in flight keep using the policies they started with.
+     *
+     * @param configuration
+     *     New configuration
+     */
+    public synchronized void reload(@NonNull CorsConfiguration configuration) {
+        this.configuration = configuration;
+        if (resourceModel != null) {
+            publish();
+        }
+        log.info("Reloaded CORS configuration with {} path policies", configuration.getPaths().size());
+    }
+
+    private void publish() {
+        long               start = System.nanoTime();
+        CorsPolicySnapshot compiled;
+        if (warmUpParallelism == 0) {
+            compiled = new CorsPolicySnapshot(resourceModel, configuration, defaultMaxAge, null);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(warmUpParallelism);
+            try {
+                compiled = new CorsPolicySnapshot(resourceModel, configuration, defaultMaxAge, pool);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        snapshot = compiled;
+        if (compileTimer != null) {
+            compileTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        }
+        log.info(
+            "Compiled CORS policies for {} resource methods, {} sub-resource methods and {} resource paths in {} ms",
+            compiled.size(),
+            compiled.subResourceSize(),
+            compiled.getPreflightIndex().size(),
+            TimeUnit.NANOSECONDS.toMillis(elapsed)
+        );
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return null;
+    }
+
+    /**
+     * Looks up the policy for a single resource method; Methods that were not part of the resource model at startup (such as those on
+     * sub-resources returned by a resource locator) are compiled on demand.
+     *
+     * @param method
+     *     Resource method to get the policy for
+     *
+     * @return Policy for the method, including any path override but not any policies inherited from resource locators or the defaults
+     */
+    public CorsPolicy getPolicy(@NonNull ResourceMethod method) {
+        return snapshot.getPolicy(method);
+    }
+
+    /**
+     * Looks up the effective policy for a resource method reached through a chain of resource locators; If the same attribute is set in
+     * multiple places, the one closest to the resource method is used, and the configured defaults are used for attributes that aren't
+     * set anywhere.
+     *
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the resource method to the furthest
+     * @param method
+     *     Resource method to get the policy for
+     *
+     * @return Effective policy for the method
+     */
+    public CorsPolicy getPolicy(@NonNull List<ResourceMethod> locators, @NonNull ResourceMethod method) {
+        return snapshot.getPolicy(locators, method);
+    }
+
+    /**
+     * Looks up the pre-flight policy for a resource reached through a chain of resource locators; Policies for resources that were part of
+     * the resource model at startup and are not reached through a locator are precompiled, others are compiled on demand.
+     *
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the resource to the furthest
+     * @param resource
+     *     Matched resource
+     *
+     * @return Pre-flight policy for the resource
+     */
+    public CorsPreflightPolicy getPreflightPolicy(@NonNull List<ResourceMethod> locators, @NonNull Resource resource) {
+        return snapshot.getPreflightPolicy(locators, resource);
+    }
+
+    /**
+     * Looks up the pre-flight policy for a resource reached through a chain of resource locators, if it is already known; Jersey doesn't
+     * reuse every runtime model (such as those built from a {@link Resource} returned by a locator), so a policy that is compiled on demand
+     * may belong to a model that is never matched again.
+     *
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the resource to the furthest
+     * @param resource
+     *     Matched resource
+     *
+     * @return Precompiled policy, or policy memoized when the same chain was matched before, or {@code null} if there is neither
+     */
+    public CorsPreflightPolicy findPreflightPolicy(@NonNull List<ResourceMethod> locators, @NonNull Resource resource) {
+        return snapshot.findPreflightPolicy(locators, resource);
+    }
+
+    /**
+     * @return {@code true} if any response could carry CORS headers; If not, requests that can't be CORS requests don't need a {@code
+     * Vary} header either, and the filter doesn't need to look up their resource method
+     */
+    public boolean isEnabled() {
+        return snapshot.isEnabled();
+    }
+
+    /**
+     * @return Index from request paths to the pre-flight policies of the resources that are not reached through a resource locator
+     */
+    public CorsPreflightIndex getPreflightIndex() {
+        return snapshot.getPreflightIndex();
+    }
+}
@@ -0,0 +1,397 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+import lombok.NonNull;
+import org.glassfish.jersey.server.model.Invocable;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceMethod.JaxrsType;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.glassfish.jersey.uri.PathTemplate;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Immutable set of policies compiled from a resource model and a {@link CorsConfiguration}; A new snapshot is compiled whenever the
+ * configuration is reloaded, and published by {@link CorsPolicyRegistry} with a single volatile write, so requests always see a complete
+ * set of policies.
+ */
+final class CorsPolicySnapshot {
+    /**
+     * Snapshot used before the resource model is available
+     */
+    static final CorsPolicySnapshot EMPTY = new CorsPolicySnapshot(new CorsConfiguration());
+
+    /**
+     * Number of locator chains whose policies are memoized by each snapshot
+     */
+    private static final int LOCATOR_CHAIN_MEMO_SIZE = 1024;
+
+    /**
+     * Number of resource methods below which a parallel compilation task compiles its methods itself instead of forking
+     */
+    private static final int COMPILE_THRESHOLD = 64;
+
+    private final CorsPolicy                                      defaults;
+    private final boolean                                         canonicalHeaders;
+    private final ImmutableMap<String, CorsPolicy>                pathPolicies;
+    private final Map<ResourceMethod, CorsPolicy>                 policies;
+    private final Map<ResourceMethod, CorsPolicy>                 effectivePolicies;
+    /**
+     * Policies of the methods of sub-resources that were resolved from the return types of resource locators during warm-up, keyed by
+     * their handling method, since Jersey builds its own runtime model of a sub-resource when a locator is matched
+     */
+    private final Map<Method, CorsPolicy>                         subResourcePolicies;
+    private final Map<Resource, CorsPreflightPolicy>              preflightPolicies;
+    @Getter
+    private final CorsPreflightIndex                              preflightIndex;
+    /**
+     * Whether any response could carry CORS headers: Some policy or the defaults enable CORS, or there are resource locators, whose
+     * sub-resources are only known once they are matched
+     */
+    @Getter
+    private final boolean                                         enabled;
+    /**
+     * Merged policies of resource methods reached through locators, or that weren't in the resource model
+     */
+    private final LocatorChainMemo<ResourceMethod, CorsPolicy>    chainPolicies          = new LocatorChainMemo<>(LOCATOR_CHAIN_MEMO_SIZE);
+    /**
+     * Pre-flight policies of resources reached through locators, or that weren't in the resource model
+     */
+    private final LocatorChainMemo<Resource, CorsPreflightPolicy> chainPreflightPolicies = new LocatorChainMemo<>(LOCATOR_CHAIN_MEMO_SIZE);
+
+    private CorsPolicySnapshot(CorsConfiguration configuration) {
+        defaults = CorsPolicy.defaults(configuration, null);
+        canonicalHeaders = configuration.isCanonicalHeaders();
+        pathPolicies = compilePathPolicies(configuration);
+        policies = Collections.emptyMap();
+        effectivePolicies = Collections.emptyMap();
+        subResourcePolicies = Collections.emptyMap();
+        preflightPolicies = Collections.emptyMap();
+        preflightIndex = CorsPreflightIndex.EMPTY;
+        enabled = defaults.isEnabled();
+    }
+
+    /**
+     * Compiles a snapshot
+     *
+     * @param resourceModel
+     *     Resource model of the application
+     * @param configuration
+     *     Configuration to apply on top of the annotations
+     * @param defaultMaxAge
+     *     Max-age of pre-flight responses for resources without one, if the configuration doesn't set one either, or {@code null}
+     * @param pool
+     *     Pool to compile policies on in parallel, or {@code null} to compile them on the calling thread; If given, the sub-resources that
+     *     resource locators return are resolved from their return types where possible, and compiled as well
+     */
+    CorsPolicySnapshot(
+        @NonNull ResourceModel resourceModel, @NonNull CorsConfiguration configuration, Long defaultMaxAge, ForkJoinPool pool
+    ) {
+        defaults = CorsPolicy.defaults(configuration, defaultMaxAge);
+        canonicalHeaders = configuration.isCanonicalHeaders();
+        pathPolicies = compilePathPolicies(configuration);
+        List<ResourceMethod> methods        = new ArrayList<>();
+        List<CorsPolicy>     methodPolicies = new ArrayList<>();
+        for (Resource resource : resourceModel.getResources()) {
+            collect(resource, "", methods, methodPolicies);
+        }
+        CorsPolicy[]                    annotated = compileAll(methods, pool);
+        Map<ResourceMethod, CorsPolicy> compiled  = new IdentityHashMap<>();
+        for (int i = 0; i < annotated.length; i++) {
+            CorsPolicy pathPolicy = methodPolicies.get(i);
+            compiled.put(methods.get(i), pathPolicy == null ? annotated[i] : pathPolicy.merge(annotated[i]));
+        }
+        policies = Collections.unmodifiableMap(compiled);
+        subResourcePolicies = pool == null ? Collections.emptyMap() : compileSubResources(methods, pool);
+        Map<ResourceMethod, CorsPolicy> effective = new IdentityHashMap<>();
+        compiled.forEach((method, policy) -> effective.put(method, finish(policy.merge(defaults))));
+        effectivePolicies = Collections.unmodifiableMap(effective);
+        Map<Resource, CorsPreflightPolicy> compiledPreflights = new IdentityHashMap<>();
+        CorsPreflightIndex.Builder         index              = CorsPreflightIndex.builder();
+        for (Resource resource : resourceModel.getResources()) {
+            compilePreflight(resource, "", compiledPreflights, index);
+        }
+        preflightPolicies = Collections.unmodifiableMap(compiledPreflights);
+        preflightIndex = index.build();
+        enabled = defaults.isEnabled() || compiled.entrySet().stream().anyMatch(
+            entry -> entry.getValue().isEnabled() || entry.getKey().getType() == JaxrsType.SUB_RESOURCE_LOCATOR
+        );
+    }
+
+    private static ImmutableMap<String, CorsPolicy> compilePathPolicies(CorsConfiguration configuration) {
+        ImmutableMap.Builder<String, CorsPolicy> pathPolicies = ImmutableMap.builder();
+        configuration.getPaths().forEach((path, policy) -> pathPolicies.put(new PathTemplate(path).getTemplate(), CorsPolicy.of(policy)));
+        return pathPolicies.build();
+    }
+
+    /**
+     * Collects the methods of a resource and its children, along with the path policy that applies to each of them
+     */
+    private void collect(Resource resource, String parentPath, List<ResourceMethod> methods, List<CorsPolicy> methodPolicies) {
+        String     path       = joinPath(parentPath, resource.getPath());
+        CorsPolicy pathPolicy = pathPolicies.get(new PathTemplate(path).getTemplate());
+        for (ResourceMethod method : resource.getAllMethods()) {
+            methods.add(method);
+            methodPolicies.add(pathPolicy);
+        }
+        for (Resource child : resource.getChildResources()) {
+            collect(child, path, methods, methodPolicies);
+        }
+    }
+
+    /**
+     * Compiles the annotated policy of each resource method, forking across the pool if there is one
+     *
+     * @return Policies, in the same order as {@code methods}
+     */
+    private static CorsPolicy[] compileAll(List<ResourceMethod> methods, ForkJoinPool pool) {
+        CorsPolicy[] compiled = new CorsPolicy[methods.size()];
+        if (pool == null) {
+            for (int i = 0; i < compiled.length; i++) {
+                compiled[i] = CorsPolicy.of(methods.get(i));
+            }
+        } else {
+            pool.invoke(new CompileTask(methods, compiled, 0, compiled.length));
+        }
+        return compiled;
+    }
+
+    /**
+     * Resolves the sub-resources returned by resource locators from the locators' return types, following the locators of sub-resources in
+     * turn, and compiles the policies of their methods. Locators that return {@link Resource}s, {@link Class}es, interfaces or abstract
+     * classes can only be resolved once they are matched, and are skipped.
+     *
+     * @return Policies of the sub-resource methods, keyed by their handling method
+     */
+    private static Map<Method, CorsPolicy> compileSubResources(List<ResourceMethod> methods, ForkJoinPool pool) {
+        Deque<ResourceMethod> locators = new ArrayDeque<>();
+        for (ResourceMethod method : methods) {
+            if (method.getType() == JaxrsType.SUB_RESOURCE_LOCATOR) {
+                locators.add(method);
+            }
+        }
+        Set<Class<?>>        resolved     = new HashSet<>();
+        List<ResourceMethod> subResources = new ArrayList<>();
+        while (!locators.isEmpty()) {
+            Class<?> type = resolveLocatedClass(locators.poll());
+            if (type == null || !resolved.add(type)) {
+                continue;
+            }
+            Resource resource;
+            try {
+                resource = Resource.from(type);
+            } catch (RuntimeException e) {
+                // Jersey rejects the same sub-resource when the locator is matched, so there is nothing to warm up
+                continue;
+            }
+            if (resource != null) {
+                collectSubResource(resource, subResources, locators);
+            }
+        }
+        CorsPolicy[]            compiled = compileAll(subResources, pool);
+        Map<Method, CorsPolicy> policies = new HashMap<>();
+        for (int i = 0; i < compiled.length; i++) {
+            Invocable invocable = subResources.get(i).getInvocable();
+            if (isDeclaredByHandler(invocable)) {
+                policies.put(invocable.getHandlingMethod(), compiled[i]);
+            }
+        }
+        return Collections.unmodifiableMap(policies);
+    }
+
+    private static void collectSubResource(Resource resource, List<ResourceMethod> subResources, Deque<ResourceMethod> locators) {
+        for (ResourceMethod method : resource.getAllMethods()) {
+            subResources.add(method);
+            if (method.getType() == JaxrsType.SUB_RESOURCE_LOCATOR) {
+                locators.add(method);
+            }
+        }
+        for (Resource child : resource.getChildResources()) {
+            collectSubResource(child, subResources, locators);
+        }
+    }
+
+    /**
+     * @return Class of the sub-resource that a locator returns, or {@code null} if it can only be known once the locator is invoked
+     */
+    private static Class<?> resolveLocatedClass(ResourceMethod locator) {
+        Class<?> type = locator.getInvocable().getRawResponseType();
+        if (type == null
+            || type == Object.class
+            || type == Class.class
+            || type.isPrimitive()
+            || type.isInterface()
+            || Modifier.isAbstract(type.getModifiers())
+            || Resource.class.isAssignableFrom(type)) {
+            return null;
+        }
+        return type;
+    }
+
+    /**
+     * Checks whether a handling method is declared by the class that handles it; Otherwise, the same method could be inherited by several
+     * sub-resource classes with different class level annotations, and can't identify a policy by itself
+     */
+    private static boolean isDeclaredByHandler(Invocable invocable) {
+        return invocable.getHandlingMethod().getDeclaringClass() == invocable.getHandler().getHandlerClass();
+    }
+
+    private void compilePreflight(
+        Resource resource, String parentPath, Map<Resource, CorsPreflightPolicy> compiled, CorsPreflightIndex.Builder index
+    ) {
+        CorsPreflightPolicy policy = CorsPreflightPolicy.of(this, Collections.emptyList(), resource);
+        String              path   = joinPath(parentPath, resource.getPath());
+        compiled.put(resource, policy);
+        index.add(path, policy);
+        if (resource.getResourceLocator() != null) {
+            index.addLocator(path);
+        }
+        for (Resource child : resource.getChildResources()) {
+            compilePreflight(child, path, compiled, index);
+        }
+    }
+
+    /**
+     * Appends the path of a resource to the full path of its parent, in the form used to look up configured path policies
+     */
+    static String joinPath(String parentPath, String path) {
+        if (path == null) {
+            return parentPath;
+        }
+        String trimmed = CharMatcher.is('/').trimFrom(path);
+        if (trimmed.isEmpty()) {
+            return parentPath;
+        }
+        return parentPath + "/" + trimmed;
+    }
+
+    /**
+     * @return Number of resource methods with compiled policies
+     */
+    int size() {
+        return policies.size();
+    }
+
+    /**
+     * @return Number of sub-resource methods with policies compiled during warm-up
+     */
+    int subResourceSize() {
+        return subResourcePolicies.size();
+    }
+
+    /**
+     * Looks up the policy for a single resource method, not including policies inherited from resource locators or the defaults
+     */
+    CorsPolicy getPolicy(ResourceMethod method) {
+        CorsPolicy policy = policies.get(method);
+        if (policy != null) {
+            return policy;
+        }
+        if (!subResourcePolicies.isEmpty() && isDeclaredByHandler(method.getInvocable())) {
+            policy = subResourcePolicies.get(method.getInvocable().getHandlingMethod());
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return CorsPolicy.of(method);
+    }
+
+    /**
+     * Looks up the effective policy for a resource method reached through a chain of resource locators
+     */
+    CorsPolicy getPolicy(List<ResourceMethod> locators, ResourceMethod method) {
+        if (locators.isEmpty()) {
+            CorsPolicy policy = effectivePolicies.get(method);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        CorsPolicy policy = chainPolicies.get(locators, method);
+        if (policy != null) {
+            return policy;
+        }
+        policy = getPolicy(method);
+        for (int i = 0; i < locators.size(); i++) {
+            policy = policy.merge(getPolicy(locators.get(i)));
+        }
+        return chainPolicies.put(locators, method, finish(policy.merge(defaults)));
+    }
+
+    /**
+     * Applies the rendering options of the configuration to a fully merged policy
+     */
+    private CorsPolicy finish(CorsPolicy policy) {
+        return canonicalHeaders ? policy.canonical() : policy;
+    }
+
+    /**
+     * Looks up the pre-flight policy for a resource reached through a chain of resource locators
+     */
+    CorsPreflightPolicy getPreflightPolicy(List<ResourceMethod> locators, Resource resource) {
+        CorsPreflightPolicy policy = findPreflightPolicy(locators, resource);
+        if (policy != null) {
+            return policy;
+        }
+        return chainPreflightPolicies.put(locators, resource, CorsPreflightPolicy.of(this, locators, resource));
+    }
+
+    /**
+     * Looks up the pre-flight policy for a resource reached through a chain of resource locators, without compiling it
+     *
+     * @return Precompiled or memoized policy, or {@code null} if the chain hasn't been seen before
+     */
+    CorsPreflightPolicy findPreflightPolicy(List<ResourceMethod> locators, Resource resource) {
+        if (locators.isEmpty()) {
+            CorsPreflightPolicy policy = preflightPolicies.get(resource);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return chainPreflightPolicies.get(locators, resource);
+    }
+
+    /**
+     * Compiles the annotated policies of a range of resource methods, splitting the range in half until it is small enough
+     */
+    private static final class CompileTask extends RecursiveAction {
+        private final List<ResourceMethod> methods;
+        private final CorsPolicy[]         compiled;
+        private final int                  from;
+        private final int                  to;
+
+        private CompileTask(List<ResourceMethod> methods, CorsPolicy[] compiled, int from, int to) {
+            this.methods = methods;
+            this.compiled = compiled;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= COMPILE_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    compiled[i] = CorsPolicy.of(methods.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CompileTask(methods, compiled, from, middle), new CompileTask(methods, compiled, middle, to));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package zone.dragon.dropwizard.cors;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import lombok.NonNull;
+
+import java.util.Objects;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Bounded cache of rendered pre-flight responses, keyed by the resource's {@link CorsPreflightPolicy} (by identity), the origin, the
+ * requested method and the requested headers, so that a repeated pre-flight request costs a single hash lookup. The least recently used
+ * entries are evicted once the cache is full, so a flood of distinct origins can't exhaust the heap.
+ * <p>
+ * Pre-flight policies are replaced when the configuration is reloaded, so entries for old policies are never hit again and simply age out.
+ */
+public class CorsPreflightCache {
+    private static final CorsPreflightCache DISABLED = new CorsPreflightCache(null);
+
+    private final Cache<Key, CorsPreflightResponse> cache;
+
+    private CorsPreflightCache(Cache<Key, CorsPreflightResponse> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return Cache that never stores anything
+     */
+    public static CorsPreflightCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Creates a cache
+     *
+     * @param maximumSize
+     *     Maximum number of responses to cache; {@code 0} disables caching
+     *
+     * @return Cache with the given size
+     */
+    public static CorsPreflightCache of(long maximumSize) {
+        if (maximumSize <= 0) {
+            return DISABLED;
+        }
+        return new CorsPreflightCache(CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build());
+    }
+
+    /**
+     * @return {@code true} if this cache stores anything
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Looks up the response to a pre-flight request, rendering and caching it on a miss
+     *
+     * @param preflightPolicy
+     *     Pre-flight policy of the requested resource
+     * @param requestedPolicy
+     *     Policy of the method named by {@code requestMethod}
+     * @param origin
+     *     Value of the {@code Origin} request header
+     * @param requestMethod
+     *     Value of the {@code Access-Control-Request-Method} request header
+     * @param requestHeaders
+     *     Value of the {@code Access-Control-Request-Headers} request header, may be {@code null}
+     *
+     * @return Rendered response
+     */
+    public CorsPreflightResponse get(
+        @NonNull CorsPreflightPolicy preflightPolicy,
+        @NonNull CorsPolicy requestedPolicy,
+        @NonNull String origin,
+        @NonNull String requestMethod,
+        String requestHeaders
+    ) {
+        if (cache == null) {
+            return CorsPreflightResponse.of(preflightPolicy, requestedPolicy, origin, requestHeaders);
+        }
+        Key                   key      = new Key(preflightPolicy, origin, requestMethod, requestHeaders);
+        CorsPreflightResponse response = cache.getIfPresent(key);
+        if (response == null) {
+            response = CorsPreflightResponse.of(preflightPolicy, requestedPolicy, origin, requestHeaders);
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * @return Hit, miss and eviction counts, which are all zero if caching is disabled
+     */
+    public CacheStats getStats() {
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    /**
+     * @return Approximate number of cached responses
+     */
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * Registers gauges for the cache statistics in a registry
+     *
+     * @param registry
+     *     Registry to register the gauges with
+     */
+    public void registerMetrics(@NonNull MetricRegistry registry) {
+        String prefix = name(CorsResponseFilter.class, "preflight", "cache");
+        registry.register(name(prefix, "hits"), (Gauge<Long>) () -> getStats().hitCount());
+        registry.register(name(prefix, "misses"), (Gauge<Long>) () -> getStats().missCount());
+        registry.register(name(prefix, "evictions"), (Gauge<Long>) () -> getStats().evictionCount());
+        registry.register(name(prefix, "size"), (Gauge<Long>) this::size);
+    }
+
+    /**
+     * Cache key; The pre-flight policy is compared by identity, since it is compiled once per resource
+     */
+    private static final class Key {
+        private final CorsPreflightPolicy preflightPolicy;
+        private final String              origin;
+        private final String              requestMethod;
+        private final String              requestHeaders;
+        private final int                 hash;
+
+        private Key(CorsPreflightPolicy preflightPolicy, String origin, String requestMethod, String requestHeaders) {
+            this.preflightPolicy = preflightPolicy;
+            this.origin = origin;
+            this.requestMethod = requestMethod;
+            this.requestHeaders = requestHeaders;
+            int hash = System.identityHashCode(preflightPolicy);
+            hash = 31 * hash + origin.hashCode();
+            hash = 31 * hash + requestMethod.hashCode();
+            this.hash = 31 * hash + Objects.hashCode(requestHeaders);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return preflightPolicy == other.preflightPolicy
+                   && hash == other.hash
+                   && origin.equals(other.origin)
+                   && requestMethod.equals(other.requestMethod)
+                   && Objects.equals(requestHeaders, other.requestHeaders);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
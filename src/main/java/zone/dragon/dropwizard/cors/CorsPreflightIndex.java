@@ -0,0 +1,160 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.glassfish.jersey.uri.PathPattern;
+import org.glassfish.jersey.uri.PathTemplate;
+import org.glassfish.jersey.uri.PatternWithGroups;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index from request paths to the pre-flight policies of the resources in the Jersey resource model, used to answer pre-flight requests
+ * without entering Jersey. Paths without template variables are looked up in a hash map; Templated paths are matched in the same order of
+ * precedence that Jersey uses. Resources without CORS enabled methods and the paths below resource locators are indexed as well, so that
+ * their requests are passed on to Jersey rather than matching a less specific template of a CORS enabled resource.
+ */
+public final class CorsPreflightIndex {
+    /**
+     * Index that contains no paths
+     */
+    public static final CorsPreflightIndex EMPTY = new CorsPreflightIndex(ImmutableMap.of(), ImmutableList.of(), ImmutableList.of());
+
+    /**
+     * Marker for paths whose pre-flight requests must be passed on to Jersey
+     */
+    private static final CorsPreflightPolicy PASS_THROUGH = CorsPreflightPolicy.EMPTY;
+
+    private final ImmutableMap<String, CorsPreflightPolicy> exactPaths;
+    private final ImmutableList<PatternWithGroups>          templates;
+    private final ImmutableList<CorsPreflightPolicy>        templatePolicies;
+
+    private CorsPreflightIndex(
+        ImmutableMap<String, CorsPreflightPolicy> exactPaths,
+        ImmutableList<PatternWithGroups> templates,
+        ImmutableList<CorsPreflightPolicy> templatePolicies
+    ) {
+        this.exactPaths = exactPaths;
+        this.templates = templates;
+        this.templatePolicies = templatePolicies;
+    }
+
+    /**
+     * @return Builder for an index
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Looks up the pre-flight policy for a request path
+     *
+     * @param path
+     *     Request path relative to the Jersey application, starting with {@code /}
+     *
+     * @return Pre-flight policy of the resource at the path, or {@code null} if no CORS enabled resource is indexed for the path
+     */
+    public CorsPreflightPolicy find(@NonNull String path) {
+        CorsPreflightPolicy policy = exactPaths.get(path);
+        if (policy == null) {
+            for (int i = 0; i < templates.size(); i++) {
+                if (templates.get(i).match(path) != null) {
+                    policy = templatePolicies.get(i);
+                    break;
+                }
+            }
+        }
+        return policy == PASS_THROUGH ? null : policy;
+    }
+
+    /**
+     * @return Number of indexed paths
+     */
+    public int size() {
+        return exactPaths.size() + templates.size();
+    }
+
+    /**
+     * Builder for {@link CorsPreflightIndex}; The first CORS enabled policy added for a path wins.
+     */
+    public static final class Builder {
+        private final Map<String, CorsPreflightPolicy>       exactPaths = new HashMap<>();
+        private final Map<PathTemplate, CorsPreflightPolicy> templates  = new HashMap<>();
+        private final List<PathTemplate>                     locators   = new ArrayList<>();
+
+        private Builder() {}
+
+        /**
+         * Adds a resource to the index
+         *
+         * @param path
+         *     Full path template of the resource, relative to the Jersey application
+         * @param policy
+         *     Pre-flight policy of the resource, or {@link CorsPreflightPolicy#EMPTY} if it has no CORS enabled methods
+         *
+         * @return This builder
+         */
+        public Builder add(@NonNull String path, @NonNull CorsPreflightPolicy policy) {
+            PathTemplate template = new PathTemplate(path);
+            if (template.getTemplateVariables().isEmpty()) {
+                exactPaths.merge(template.getTemplate(), policy, Builder::firstEnabled);
+            } else {
+                templates.merge(template, policy, Builder::firstEnabled);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a resource locator to the index, so that pre-flight requests for the paths below it are passed on to Jersey
+         *
+         * @param path
+         *     Full path template of the resource locator, relative to the Jersey application
+         *
+         * @return This builder
+         */
+        public Builder addLocator(@NonNull String path) {
+            locators.add(new PathTemplate(path));
+            return this;
+        }
+
+        private static CorsPreflightPolicy firstEnabled(CorsPreflightPolicy existing, CorsPreflightPolicy added) {
+            return existing == PASS_THROUGH ? added : existing;
+        }
+
+        /**
+         * @return Immutable index of the added resources
+         */
+        public CorsPreflightIndex build() {
+            // Resources are matched before locators with the same template, as Jersey only uses a locator for the paths below it
+            List<IndexedTemplate> sorted = new ArrayList<>();
+            templates.forEach((template, policy) -> sorted.add(new IndexedTemplate(template, template.getPattern(), policy)));
+            for (PathTemplate locator : locators) {
+                sorted.add(new IndexedTemplate(locator, new PathPattern(locator), PASS_THROUGH));
+            }
+            sorted.sort((left, right) -> UriTemplate.COMPARATOR.compare(left.template, right.template));
+            ImmutableList.Builder<PatternWithGroups>   sortedTemplates = ImmutableList.builder();
+            ImmutableList.Builder<CorsPreflightPolicy> sortedPolicies  = ImmutableList.builder();
+            for (IndexedTemplate entry : sorted) {
+                sortedTemplates.add(entry.pattern);
+                sortedPolicies.add(entry.policy);
+            }
+            return new CorsPreflightIndex(ImmutableMap.copyOf(exactPaths), sortedTemplates.build(), sortedPolicies.build());
+        }
+    }
+
+    /**
+     * Template in the index, with the pattern that matches request paths to it
+     */
+    @RequiredArgsConstructor
+    private static final class IndexedTemplate {
+        private final UriTemplate         template;
+        private final PatternWithGroups   pattern;
+        private final CorsPreflightPolicy policy;
+    }
+}
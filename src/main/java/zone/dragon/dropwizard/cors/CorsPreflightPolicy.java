@@ -0,0 +1,89 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable view of the CORS policies for all of the methods of a single resource, used to answer pre-flight requests. The {@code
+ * Access-Control-Allow-Methods} header value is rendered once, with the methods in a stable (alphabetical) order.
+ */
+@ToString
+@EqualsAndHashCode
+public final class CorsPreflightPolicy {
+    /**
+     * Pre-flight policy for a resource that has no CORS enabled methods
+     */
+    public static final CorsPreflightPolicy EMPTY = new CorsPreflightPolicy(ImmutableMap.of());
+
+    /**
+     * Policies of the CORS enabled methods of the resource, keyed by HTTP method
+     */
+    private final ImmutableMap<String, CorsPolicy> methodPolicies;
+
+    /**
+     * Rendered value of the {@code Access-Control-Allow-Methods} header, or {@code null} if no methods of the resource are CORS enabled
+     */
+    @Getter
+    private final String allowMethodsValue;
+
+    private CorsPreflightPolicy(ImmutableMap<String, CorsPolicy> methodPolicies) {
+        this.methodPolicies = methodPolicies;
+        this.allowMethodsValue = CorsPolicy.render(methodPolicies.keySet());
+    }
+
+    /**
+     * Builds the pre-flight policy for a resource
+     *
+     * @param snapshot
+     *     Compiled policies used to look up the policies of each of the resource methods
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the resource to the furthest
+     * @param resource
+     *     Resource to build the policy for
+     *
+     * @return Pre-flight policy for the resource
+     */
+    static CorsPreflightPolicy of(
+        @NonNull CorsPolicySnapshot snapshot, @NonNull List<ResourceMethod> locators, @NonNull Resource resource
+    ) {
+        Map<String, CorsPolicy> methodPolicies = new TreeMap<>();
+        for (ResourceMethod resourceMethod : resource.getResourceMethods()) {
+            if (resourceMethod.isExtended()) {
+                // Generated methods, such as default OPTIONS handlers, aren't part of the resource's API
+                continue;
+            }
+            CorsPolicy policy = snapshot.getPolicy(locators, resourceMethod);
+            if (policy.isEnabled()) {
+                methodPolicies.putIfAbsent(resourceMethod.getHttpMethod(), policy);
+            }
+        }
+        if (methodPolicies.isEmpty()) {
+            return EMPTY;
+        }
+        return new CorsPreflightPolicy(ImmutableMap.copyOf(methodPolicies));
+    }
+
+    /**
+     * Looks up the policy for the method named by the {@code Access-Control-Request-Method} header
+     *
+     * @param httpMethod
+     *     Requested HTTP method, may be {@code null}
+     *
+     * @return Policy for the method, or {@code null} if the method is not CORS enabled
+     */
+    public CorsPolicy getPolicy(String httpMethod) {
+        if (httpMethod == null) {
+            return null;
+        }
+        return methodPolicies.get(httpMethod);
+    }
+}
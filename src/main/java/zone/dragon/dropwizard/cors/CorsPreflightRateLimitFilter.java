@@ -0,0 +1,66 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import lombok.NonNull;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.Response;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+/**
+ * Rejects pre-flight requests from origins that have exceeded their rate in the {@link PreflightRateLimiter} with {@code 429 Too Many
+ * Requests}, before Jersey matches the request to a resource
+ */
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 100)
+public class CorsPreflightRateLimitFilter implements ContainerRequestFilter {
+    /**
+     * {@code 429 Too Many Requests}, which isn't defined by JAX-RS 2.0
+     */
+    static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Request property set once a permit has been taken for a request, so that it isn't charged twice when {@link
+     * CorsPreflightServletFilter} passes it on to Jersey
+     */
+    static final String PERMIT_PROPERTY = CorsPreflightRateLimitFilter.class.getName() + ".permit";
+
+    private final PreflightRateLimiter limiter;
+    private final CorsMetrics          metrics;
+
+    /**
+     * Creates the filter
+     *
+     * @param limiter
+     *     Limiter to take permits from
+     * @param metrics
+     *     Metrics to record rejected requests with
+     */
+    public CorsPreflightRateLimitFilter(@NonNull PreflightRateLimiter limiter, @NonNull CorsMetrics metrics) {
+        this.limiter = limiter;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!HttpMethod.OPTIONS.equals(requestContext.getMethod())) {
+            return;
+        }
+        String origin = requestContext.getHeaderString(HttpHeaders.ORIGIN);
+        if (origin == null || requestContext.getHeaderString(REQUEST_METHOD) == null) {
+            return;
+        }
+        if (requestContext.getProperty(PERMIT_PROPERTY) != null || limiter.tryAcquire(origin)) {
+            return;
+        }
+        metrics.preflightRateLimited();
+        Response tooManyRequests = Response.status(TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, limiter.getRetryAfterValue()).build();
+        requestContext.abortWith(tooManyRequests);
+    }
+}
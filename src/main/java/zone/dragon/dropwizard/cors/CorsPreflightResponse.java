@@ -0,0 +1,135 @@
+package zone.dragon.dropwizard.cors;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * Fully rendered CORS headers of the response to a single pre-flight request; Instances are immutable, so they can be cached by {@link
+ * CorsPreflightCache} and reused for identical pre-flight requests.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class CorsPreflightResponse {
+    /**
+     * Value of the {@code Access-Control-Allow-Methods} header, or {@code null} if no methods of the resource are CORS enabled
+     */
+    private final String allowMethodsValue;
+
+    /**
+     * Names to add to the {@code Vary} header
+     */
+    private final String varyValue;
+
+    /**
+     * Value of the {@code Access-Control-Allow-Origin} header, or {@code null} if the origin is not allowed, in which case none of the
+     * remaining headers are sent
+     */
+    private final String allowOriginValue;
+
+    /**
+     * Value of the {@code Access-Control-Max-Age} header, or {@code null} if not sent
+     */
+    private final String maxAgeValue;
+
+    /**
+     * Whether the {@code Access-Control-Allow-Credentials} header is sent
+     */
+    private final boolean allowCredentials;
+
+    /**
+     * Value of the {@code Access-Control-Allow-Headers} header, or {@code null} if not sent
+     */
+    private final String allowHeadersValue;
+
+    private CorsPreflightResponse(
+        String allowMethodsValue,
+        String varyValue,
+        String allowOriginValue,
+        String maxAgeValue,
+        boolean allowCredentials,
+        String allowHeadersValue
+    ) {
+        this.allowMethodsValue = allowMethodsValue;
+        this.varyValue = varyValue;
+        this.allowOriginValue = allowOriginValue;
+        this.maxAgeValue = maxAgeValue;
+        this.allowCredentials = allowCredentials;
+        this.allowHeadersValue = allowHeadersValue;
+    }
+
+    /**
+     * Renders the response to a pre-flight request
+     *
+     * @param preflightPolicy
+     *     Pre-flight policy of the requested resource
+     * @param requestedPolicy
+     *     Policy of the method named by the {@code Access-Control-Request-Method} header
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     * @param requestHeaders
+     *     Value of the {@code Access-Control-Request-Headers} request header, may be {@code null}
+     *
+     * @return Rendered response
+     */
+    public static CorsPreflightResponse of(
+        @NonNull CorsPreflightPolicy preflightPolicy, @NonNull CorsPolicy requestedPolicy, String origin, String requestHeaders
+    ) {
+        return of(preflightPolicy, requestedPolicy, origin, requestHeaders, null);
+    }
+
+    /**
+     * Renders the response to a pre-flight request for a method whose policy has an {@link OriginResolver}
+     *
+     * @param preflightPolicy
+     *     Pre-flight policy of the requested resource
+     * @param requestedPolicy
+     *     Policy of the method named by the {@code Access-Control-Request-Method} header
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     * @param requestHeaders
+     *     Value of the {@code Access-Control-Request-Headers} request header, may be {@code null}
+     * @param decision
+     *     Decision of the policy's resolver for the origin, or {@code null} if the resolver wasn't consulted
+     *
+     * @return Rendered response
+     */
+    public static CorsPreflightResponse of(
+        @NonNull CorsPreflightPolicy preflightPolicy,
+        @NonNull CorsPolicy requestedPolicy,
+        String origin,
+        String requestHeaders,
+        OriginDecision decision
+    ) {
+        String  allowMethods     = preflightPolicy.getAllowMethodsValue();
+        String  vary             = requestedPolicy.getPreflightVaryValue();
+        String  allowOrigin      = requestedPolicy.getAllowOriginValue(origin);
+        boolean allowCredentials = requestedPolicy.isAllowCredentials();
+        String  maxAge           = requestedPolicy.getMaxAgeValue(origin);
+        if (allowOrigin == null && decision != null && decision.isAllowed()) {
+            allowOrigin = origin;
+            allowCredentials = decision.resolveAllowCredentials(allowCredentials);
+            maxAge = decision.resolveMaxAgeValue(maxAge);
+        }
+        if (allowOrigin == null) {
+            return new CorsPreflightResponse(allowMethods, vary, null, null, false, null);
+        }
+        return new CorsPreflightResponse(
+            allowMethods,
+            vary,
+            allowOrigin,
+            maxAge,
+            allowCredentials,
+            requestedPolicy.getAllowHeadersValue(requestHeaders)
+        );
+    }
+
+    /**
+     * @return {@code true} if the origin and method were allowed
+     */
+    public boolean isAllowed() {
+        return allowOriginValue != null;
+    }
+}
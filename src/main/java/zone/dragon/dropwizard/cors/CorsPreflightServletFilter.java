@@ -0,0 +1,157 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.HttpMethod;
+import java.io.IOException;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_CREDENTIALS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_METHODS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.MAX_AGE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_MODE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_SITE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.TRUE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.mergeVary;
+
+/**
+ * Servlet filter that answers pre-flight requests for CORS enabled resources before they reach Jersey, using the {@link CorsPreflightIndex}
+ * built from the Jersey resource model. Pre-flight requests for paths that aren't indexed (such as those reached through a resource
+ * locator) and all other requests are passed on to Jersey, where {@link CorsResponseFilter} handles them.
+ */
+@RequiredArgsConstructor
+public class CorsPreflightServletFilter implements Filter {
+    @NonNull
+    private final CorsPolicyRegistry   registry;
+    @NonNull
+    private final CorsMetrics          metrics;
+    @NonNull
+    private final CorsPreflightCache   preflightCache;
+    @NonNull
+    private final CorsOriginResolvers  originResolvers;
+    /**
+     * Limiter for pre-flight requests, or {@code null} if they aren't limited
+     */
+    private final PreflightRateLimiter rateLimiter;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        // not used
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !handlePreflight((HttpServletRequest) request, (HttpServletResponse) response)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Answers the request if it is a pre-flight request for an indexed resource
+     *
+     * @return {@code true} if the request was answered, or {@code false} if it must be passed on
+     */
+    private boolean handlePreflight(HttpServletRequest request, HttpServletResponse response) {
+        if (!HttpMethod.OPTIONS.equals(request.getMethod())) {
+            return false;
+        }
+        String origin        = request.getHeader(HttpHeaders.ORIGIN);
+        String requestMethod = request.getHeader(REQUEST_METHOD);
+        if (origin == null || requestMethod == null) {
+            return false;
+        }
+        if (!CorsResponseFilter.isCorsFetch(request.getHeader(SEC_FETCH_SITE), request.getHeader(SEC_FETCH_MODE))) {
+            return false;
+        }
+        long   start = metrics.start();
+        String path  = getApplicationPath(request);
+        if (path == null) {
+            return false;
+        }
+        CorsPreflightPolicy preflightPolicy = registry.getPreflightIndex().find(path);
+        if (preflightPolicy == null) {
+            return false;
+        }
+        CorsPolicy requestedPolicy = preflightPolicy.getPolicy(requestMethod);
+        if (requestedPolicy == null) {
+            // The method may still be handled by Jersey without CORS, so let Jersey decide how to respond
+            return false;
+        }
+        // Only requests answered here are charged; Those passed on are charged by CorsPreflightRateLimitFilter instead
+        if (rateLimiter != null) {
+            if (!rateLimiter.tryAcquire(origin)) {
+                metrics.preflightRateLimited();
+                response.setStatus(CorsPreflightRateLimitFilter.TOO_MANY_REQUESTS);
+                response.setHeader(HttpHeaders.RETRY_AFTER, rateLimiter.getRetryAfterValue());
+                return true;
+            }
+            request.setAttribute(CorsPreflightRateLimitFilter.PERMIT_PROPERTY, Boolean.TRUE);
+        }
+        String                requestHeaders = request.getHeader(REQUEST_HEADERS);
+        CorsPreflightResponse preflightResponse;
+        if (requestedPolicy.getOriginResolver() != null) {
+            OriginDecision decision = requestedPolicy.getAllowOriginValue(origin) == null
+                                      ? originResolvers.resolve(requestedPolicy.getOriginResolver(), origin)
+                                      : null;
+            preflightResponse = CorsPreflightResponse.of(preflightPolicy, requestedPolicy, origin, requestHeaders, decision);
+        } else {
+            preflightResponse = preflightCache.get(preflightPolicy, requestedPolicy, origin, requestMethod, requestHeaders);
+        }
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        response.setHeader(ALLOW_METHODS, preflightResponse.getAllowMethodsValue());
+        response.setHeader(HttpHeaders.VARY, mergeVary(response.getHeader(HttpHeaders.VARY), preflightResponse.getVaryValue()));
+        if (preflightResponse.isAllowed()) {
+            response.setHeader(ALLOW_ORIGIN, preflightResponse.getAllowOriginValue());
+            if (preflightResponse.getMaxAgeValue() != null) {
+                response.setHeader(MAX_AGE, preflightResponse.getMaxAgeValue());
+            }
+            if (preflightResponse.isAllowCredentials()) {
+                response.setHeader(ALLOW_CREDENTIALS, TRUE);
+            }
+            if (preflightResponse.getAllowHeadersValue() != null) {
+                response.setHeader(ALLOW_HEADERS, preflightResponse.getAllowHeadersValue());
+            }
+        }
+        metrics.preflightRequest(preflightResponse.isAllowed(), start);
+        if (preflightResponse.isAllowed()) {
+            metrics.preflightOrigin(origin, requestedPolicy.isListedOrigin(origin));
+        }
+        return true;
+    }
+
+    /**
+     * Computes the path of a request relative to the Jersey application, without decoding it, as Jersey matches resources against the
+     * encoded path
+     *
+     * @return Encoded path starting with {@code /}, or {@code null} if the request URI doesn't start with the context and servlet paths
+     */
+    static String getApplicationPath(HttpServletRequest request) {
+        String uri         = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        String servletPath = request.getServletPath();
+        // The servlet path is decoded, so a prefix that the client encoded can't be stripped here, and is left to Jersey
+        if (!uri.startsWith(contextPath) || !uri.startsWith(servletPath, contextPath.length())) {
+            return null;
+        }
+        int start = contextPath.length() + servletPath.length();
+        return start == uri.length() ? "/" : uri.substring(start);
+    }
+
+    @Override
+    public void destroy() {
+        // not used
+    }
+}
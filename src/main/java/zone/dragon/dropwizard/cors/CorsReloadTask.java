@@ -0,0 +1,62 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.configuration.ConfigurationFactory;
+import io.dropwizard.configuration.FileConfigurationSourceProvider;
+import io.dropwizard.servlets.tasks.Task;
+import lombok.NonNull;
+
+import java.io.PrintWriter;
+
+/**
+ * Admin task that reloads the {@link CorsConfiguration} from the {@link CorsConfiguration#getReloadFile() reload file}, without
+ * restarting the application:
+ * <pre>
+ * curl -X POST http://localhost:8081/tasks/cors-reload
+ * </pre>
+ */
+public class CorsReloadTask extends Task {
+    private final CorsPolicyRegistry                      registry;
+    private final ConfigurationFactory<CorsConfiguration> configurationFactory;
+    private final String                                  reloadFile;
+
+    /**
+     * Creates the task
+     *
+     * @param registry
+     *     Registry to reload
+     * @param configurationFactory
+     *     Factory used to parse and validate the reload file
+     * @param reloadFile
+     *     Path of the YAML file to load the configuration from
+     */
+    public CorsReloadTask(
+        @NonNull CorsPolicyRegistry registry,
+        @NonNull ConfigurationFactory<CorsConfiguration> configurationFactory,
+        @NonNull String reloadFile
+    ) {
+        super("cors-reload");
+        this.registry = registry;
+        this.configurationFactory = configurationFactory;
+        this.reloadFile = reloadFile;
+    }
+
+    /**
+     * Loads the configuration from the reload file
+     *
+     * @return Parsed and validated configuration
+     *
+     * @throws Exception
+     *     If the file can't be read or is invalid
+     */
+    CorsConfiguration load() throws Exception {
+        return configurationFactory.build(new FileConfigurationSourceProvider(), reloadFile);
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        CorsConfiguration configuration = load();
+        registry.reload(configuration);
+        output.printf("Reloaded CORS configuration from %s%n", reloadFile);
+    }
+}
@@ -1,19 +1,12 @@
 package zone.dragon.dropwizard.cors;
 
-import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import com.google.common.net.HttpHeaders;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.Resource;
 import org.glassfish.jersey.server.model.ResourceMethod;
-import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
-import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
-import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
-import zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders;
-import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -22,27 +15,35 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response.Status.Family;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 @javax.ws.rs.ext.Provider
 @RequiredArgsConstructor(onConstructor = @__(@Inject))
 @Singleton
 public class CorsResponseFilter implements ContainerResponseFilter {
-    public static final String               ALLOW_METHODS     = "Access-Control-Allow-Methods";
-    public static final String               ALLOW_CREDENTIALS = "Access-Control-Allow-Credentials";
-    public static final String               ALLOW_HEADERS     = "Access-Control-Allow-Headers";
-    public static final String               ALLOW_ORIGIN      = "Access-Control-Allow-Origin";
-    public static final String               EXPOSE_HEADERS    = "Access-Control-Expose-Headers";
-    public static final String               MAX_AGE           = "Access-Control-Max-Age";
-    public static final String               REQUEST_METHOD    = "Access-Control-Request-Method";
-    public static final String               REQUEST_HEADERS   = "Access-Control-Request-Headers";
-    public static final String               WILDCARD_ORIGIN   = "*";
-    public static final ImmutableSet<String> SIMPLE_HEADERS    = ImmutableSet.of(
+    public static final String               ALLOW_METHODS             = "Access-Control-Allow-Methods";
+    public static final String               ALLOW_CREDENTIALS         = "Access-Control-Allow-Credentials";
+    public static final String               ALLOW_HEADERS             = "Access-Control-Allow-Headers";
+    public static final String               ALLOW_ORIGIN              = "Access-Control-Allow-Origin";
+    public static final String               EXPOSE_HEADERS            = "Access-Control-Expose-Headers";
+    public static final String               MAX_AGE                   = "Access-Control-Max-Age";
+    public static final String               REQUEST_METHOD            = "Access-Control-Request-Method";
+    public static final String               REQUEST_HEADERS           = "Access-Control-Request-Headers";
+    public static final String               WILDCARD_ORIGIN           = "*";
+    static final String                      TRUE                      = "true";
+    static final String                      SEC_FETCH_MODE            = "Sec-Fetch-Mode";
+    static final String                      SEC_FETCH_SITE            = "Sec-Fetch-Site";
+    static final String                      MODE_CORS                 = "cors";
+    static final String                      SITE_SAME_ORIGIN          = "same-origin";
+    static final String                      SITE_NONE                 = "none";
+    static final String                      VARY_ORIGIN               = HttpHeaders.ORIGIN;
+    static final String                      VARY_PREFLIGHT_ANY_ORIGIN = REQUEST_METHOD + ", " + REQUEST_HEADERS;
+    static final String                      VARY_PREFLIGHT            = VARY_ORIGIN + ", " + VARY_PREFLIGHT_ANY_ORIGIN;
+    static final String                      VARY_FETCH_METADATA       = VARY_ORIGIN + ", " + SEC_FETCH_MODE + ", " + SEC_FETCH_SITE;
+    public static final ImmutableSet<String> SIMPLE_HEADERS            = ImmutableSet.of(
         HttpHeaders.CACHE_CONTROL,
         HttpHeaders.CONTENT_LANGUAGE,
         HttpHeaders.CONTENT_TYPE,
@@ -50,123 +51,305 @@ public class CorsResponseFilter implements ContainerResponseFilter {
         HttpHeaders.LAST_MODIFIED,
         HttpHeaders.PRAGMA
     );
+    private static final CorsFlightRecorder  FLIGHT_RECORDER           = CorsFlightRecorder.create();
     @NonNull
     private final Provider<ExtendedUriInfo> uriInfo;
+    @NonNull
+    private final CorsPolicyRegistry        registry;
+    @NonNull
+    private final CorsMetrics               metrics;
+    @NonNull
+    private final CorsPreflightCache        preflightCache;
+    @NonNull
+    private final CorsOriginResolvers       originResolvers;
+    private final ExposedHeadersCache       exposedHeadersCache = new ExposedHeadersCache();
 
     @Override
     public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
-        ExtendedUriInfo uriInfo = this.uriInfo.get();
-        // Standard Requests
-        CorsAllowOrigins allowOrigins = findResourceAnnotation(uriInfo, CorsAllowOrigins.class);
-        if (allowOrigins != null) {
-            for (String allowedOrigin : allowOrigins.value()) {
-                if (allowedOrigin.equals(WILDCARD_ORIGIN) || allowedOrigin.equals(requestContext.getHeaderString(HttpHeaders.ORIGIN))) {
-                    CorsExposeHeaders exposeHeaders = findResourceAnnotation(uriInfo, CorsExposeHeaders.class);
-                    if (exposeHeaders != null) {
-                        String[] exposedHeaders = exposeHeaders.value();
-                        if (exposedHeaders.length == 0) {
-                            exposedHeaders = responseContext
-                                .getHeaders()
-                                .keySet()
-                                .stream()
-                                .filter(header -> !SIMPLE_HEADERS.contains(header))
-                                .toArray(String[]::new);
-                        }
-                        responseContext.getHeaders().add(EXPOSE_HEADERS, Joiner.on(", ").join(exposedHeaders));
-                    }
-                    responseContext.getHeaders().add(ALLOW_ORIGIN, allowedOrigin);
-                    CorsAllowCredentials allowCredentials = findResourceAnnotation(uriInfo, CorsAllowCredentials.class);
-                    if (allowCredentials != null) {
-                        responseContext.getHeaders().add(ALLOW_CREDENTIALS, "true");
-                    }
-                    break;
-                }
+        String origin = getCrossOrigin(requestContext.getHeaders());
+        if (origin == null) {
+            // Can't be a CORS request, but a cache must not reuse the response for one
+            if (registry.isEnabled()) {
+                addNonCorsVary(requestContext, responseContext);
             }
-            // TODO add Origin header to Vary
+            return;
         }
-        // Pre-Flight Requests
+        boolean         recording = FLIGHT_RECORDER.isEnabled();
+        long            start     = recording ? System.nanoTime() : metrics.start();
+        ExtendedUriInfo uriInfo   = this.uriInfo.get();
+        ResourceMethod  matched   = uriInfo.getMatchedResourceMethod();
+        if (matched == null) {
+            return;
+        }
+        List<ResourceMethod> locators = uriInfo.getMatchedResourceLocators();
+        // Standard Requests
         if (!HttpMethod.OPTIONS.equals(requestContext.getMethod()) || responseContext.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+            boolean allowed = applyPolicy(registry.getPolicy(locators, matched), origin, responseContext);
+            metrics.simpleRequest(allowed, start);
+            if (recording) {
+                long elapsed = System.nanoTime() - start;
+                FLIGHT_RECORDER.simpleRequest(matched, origin, allowed, CorsPolicyLevel.of(registry, locators, matched), elapsed);
+            }
             return;
         }
-        String               corsMethod              = requestContext.getHeaderString(REQUEST_METHOD);
-        List<ResourceMethod> locators                = uriInfo.getMatchedResourceLocators();
-        List<ResourceMethod> resourceMethods         = uriInfo.getMatchedModelResource().getResourceMethods();
-        Set<String>          corsMethods             = Sets.newHashSet();
-        ResourceMethod       requestedResourceMethod = null;
-        // Find resources that support CORS and build the Access-Control-Allow-Methods header
-        for (ResourceMethod resourceMethod : resourceMethods) {
-            allowOrigins = findResourceAnnotation(locators, resourceMethod, CorsAllowOrigins.class);
-            if (allowOrigins != null) {
-                corsMethods.add(resourceMethod.getHttpMethod());
-                if (resourceMethod.getHttpMethod().equals(corsMethod)) {
-                    requestedResourceMethod = resourceMethod;
-                }
+        // Pre-Flight Requests
+        Resource            matchedResource = uriInfo.getMatchedModelResource();
+        CorsPreflightPolicy preflightPolicy = registry.findPreflightPolicy(locators, matchedResource);
+        // Only policies of models that are matched repeatedly can be used as cache keys, or the cache would fill with unreachable entries
+        boolean             cacheable       = preflightPolicy != null;
+        if (!cacheable) {
+            preflightPolicy = registry.getPreflightPolicy(locators, matchedResource);
+        }
+        String              requestMethod   = requestContext.getHeaderString(REQUEST_METHOD);
+        CorsPolicy          requestedPolicy = preflightPolicy.getPolicy(requestMethod);
+        boolean             allowed         = false;
+        if (requestedPolicy != null) {
+            String                requestHeaders = requestContext.getHeaderString(REQUEST_HEADERS);
+            CorsPreflightResponse preflightResponse;
+            if (requestedPolicy.getOriginResolver() != null) {
+                // Resolver decisions are cached by the resolver itself, and may change
+                OriginDecision decision = requestedPolicy.getAllowOriginValue(origin) == null ? resolve(requestedPolicy, origin) : null;
+                preflightResponse = CorsPreflightResponse.of(preflightPolicy, requestedPolicy, origin, requestHeaders, decision);
+            } else if (cacheable) {
+                preflightResponse = preflightCache.get(preflightPolicy, requestedPolicy, origin, requestMethod, requestHeaders);
+            } else {
+                preflightResponse = CorsPreflightResponse.of(preflightPolicy, requestedPolicy, origin, requestHeaders);
+            }
+            allowed = applyPreflightResponse(preflightResponse, responseContext);
+        } else {
+            if (preflightPolicy.getAllowMethodsValue() != null) {
+                responseContext.getHeaders().add(ALLOW_METHODS, preflightPolicy.getAllowMethodsValue());
+                // Another requested method may have been allowed
+                addVary(responseContext, VARY_PREFLIGHT);
             }
+            // Not a pre-flight for a CORS enabled method, so treat this as a standard request to the OPTIONS method itself
+            applyPolicy(registry.getPolicy(locators, matched), origin, responseContext);
         }
-        if (!corsMethods.isEmpty()) {
-            responseContext.getHeaders().add(ALLOW_METHODS, Joiner.on(", ").join(corsMethods));
+        metrics.preflightRequest(allowed, start);
+        if (allowed) {
+            metrics.preflightOrigin(origin, requestedPolicy.isListedOrigin(origin));
         }
-        if (requestedResourceMethod == null) {
+        if (recording) {
+            long            elapsed = System.nanoTime() - start;
+            CorsPolicyLevel level   = CorsPolicyLevel.of(registry, locators, matchedResource, requestMethod);
+            FLIGHT_RECORDER.preflightRequest(matchedResource.getPath(), requestMethod, origin, allowed, level, elapsed);
+        }
+    }
+
+    /**
+     * Classifies a request by its headers, without allocating; Browsers mark requests that are same-origin, or whose responses they won't
+     * check for CORS headers (navigations, {@code no-cors} and websocket requests), with the {@code Sec-Fetch-Site} and {@code
+     * Sec-Fetch-Mode} headers, even if they also send an {@code Origin} header.
+     *
+     * @param headers
+     *     Request headers
+     *
+     * @return Value of the {@code Origin} header, or {@code null} if the request can't be a CORS request
+     */
+    static String getCrossOrigin(MultivaluedMap<String, String> headers) {
+        String origin = headers.getFirst(HttpHeaders.ORIGIN);
+        if (origin == null || !isCorsFetch(headers.getFirst(SEC_FETCH_SITE), headers.getFirst(SEC_FETCH_MODE))) {
+            return null;
+        }
+        return origin;
+    }
+
+    /**
+     * Classifies a request that sent an {@code Origin} header by its Fetch Metadata headers; Shared with {@link
+     * CorsPreflightServletFilter}, which reads headers from the servlet request instead.
+     *
+     * @param site
+     *     Value of the {@code Sec-Fetch-Site} request header, may be {@code null}
+     * @param mode
+     *     Value of the {@code Sec-Fetch-Mode} request header, may be {@code null}
+     *
+     * @return {@code false} if the browser marked the request as same-origin, or as not needing CORS headers
+     */
+    static boolean isCorsFetch(String site, String mode) {
+        if (site != null && (SITE_SAME_ORIGIN.equalsIgnoreCase(site) || SITE_NONE.equalsIgnoreCase(site))) {
+            return false;
+        }
+        return mode == null || MODE_CORS.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Adds the {@code Vary} header to the response of a request that can't be a CORS request, if the policy of the matched resource method
+     * would have answered a CORS request with headers that depend on its origin; If the request did send an {@code Origin} header, the
+     * Fetch Metadata headers that ruled it out are listed as well. The matched method is read from the request's own routing context
+     * rather than through the injected provider, and its precompiled policy already knows whether it varies by origin, so nothing is
+     * resolved or merged here.
+     */
+    private void addNonCorsVary(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!(requestContext.getUriInfo() instanceof ExtendedUriInfo)) {
+            return;
+        }
+        ExtendedUriInfo uriInfo = (ExtendedUriInfo) requestContext.getUriInfo();
+        ResourceMethod  matched = uriInfo.getMatchedResourceMethod();
+        if (matched == null) {
+            return;
+        }
+        // Policies that allow every origin without credentials answer every origin alike, so caches needn't tell requests apart
+        if (registry.getPolicy(uriInfo.getMatchedResourceLocators(), matched).getVaryValue() == null) {
             return;
         }
-        // Scan for additional annotations that affect pre-flight requests
-        CorsMaxAge maxAge = findResourceAnnotation(locators, requestedResourceMethod, CorsMaxAge.class);
-        if (maxAge != null) {
-            responseContext.getHeaders().add(MAX_AGE, maxAge.value());
-        }
-        CorsAllowCredentials allowCredentials = findResourceAnnotation(locators, requestedResourceMethod, CorsAllowCredentials.class);
-        if (allowCredentials != null) {
-            responseContext.getHeaders().add(ALLOW_CREDENTIALS, "true");
-        }
-        String requestedHeaders = requestContext.getHeaderString(REQUEST_HEADERS);
-        if (requestedHeaders != null && !requestedHeaders.isEmpty()) {
-            CorsAllowHeaders allowHeaders = findResourceAnnotation(locators, requestedResourceMethod, CorsAllowHeaders.class);
-            if (allowHeaders != null) {
-                List<String> allowedHeaders = Lists.newArrayList(requestedHeaders.split("\\s*,\\s*"));
-                if (allowHeaders.value().length != 0) {
-                    allowedHeaders.retainAll(Arrays.asList(allowHeaders.value()));
-                }
-                if (!allowedHeaders.isEmpty()) {
-                    responseContext.getHeaders().add(ALLOW_HEADERS, Joiner.on(", ").join(allowedHeaders));
-                }
+        addVary(responseContext, requestContext.getHeaderString(HttpHeaders.ORIGIN) == null ? VARY_ORIGIN : VARY_FETCH_METADATA);
+    }
+
+    /**
+     * Adds the headers for a standard cross-origin request
+     *
+     * @return {@code true} if the origin is allowed by the policy
+     */
+    private boolean applyPolicy(CorsPolicy policy, String origin, ContainerResponseContext responseContext) {
+        String  allowOrigin      = policy.getAllowOriginValue(origin);
+        boolean allowCredentials = policy.isAllowCredentials();
+        if (allowOrigin == null && origin != null && policy.getOriginResolver() != null) {
+            OriginDecision decision = resolve(policy, origin);
+            if (decision.isAllowed()) {
+                allowOrigin = origin;
+                allowCredentials = decision.resolveAllowCredentials(allowCredentials);
+            }
+        }
+        if (allowOrigin == null) {
+            addVary(responseContext, policy.getVaryValue());
+            return false;
+        }
+        if (policy.getExposeHeaders() != null) {
+            String exposedHeaders = policy.getExposeHeadersValue();
+            if (exposedHeaders == null) {
+                exposedHeaders = exposedHeadersCache.render(responseContext.getHeaders().keySet(), policy.isCanonical());
+            }
+            if (exposedHeaders != null) {
+                responseContext.getHeaders().add(EXPOSE_HEADERS, exposedHeaders);
             }
         }
+        // Added after the exposed headers are computed, since Vary is only meaningful to caches
+        addVary(responseContext, policy.getVaryValue());
+        responseContext.getHeaders().add(ALLOW_ORIGIN, allowOrigin);
+        if (allowCredentials) {
+            responseContext.getHeaders().add(ALLOW_CREDENTIALS, TRUE);
+        }
+        return true;
     }
 
-    protected <T extends Annotation> T findResourceAnnotation(ExtendedUriInfo uriInfo, Class<T> annotationType) {
-        return findResourceAnnotation(uriInfo.getMatchedResourceLocators(), uriInfo.getMatchedResourceMethod(), annotationType);
+    /**
+     * Asks the resolver of a policy whether an origin that the policy doesn't list is allowed
+     */
+    private OriginDecision resolve(CorsPolicy policy, String origin) {
+        return originResolvers.resolve(policy.getOriginResolver(), origin);
     }
 
-    protected <T extends Annotation> T findResourceAnnotation(
-        List<ResourceMethod> locators, ResourceMethod method, Class<T> annotationType
-    ) {
-        List<ResourceMethod> resourceMethods = Lists.newArrayList(locators);
-        resourceMethods.add(0, method);
-        for (int i = 0; i < resourceMethods.size(); i++) {
-            T annotation = findResourceAnnotation(resourceMethods.get(i), annotationType);
-            if (annotation != null) {
-                return annotation;
-            }
+    /**
+     * Adds header names to the {@code Vary} header of a response, keeping any names that the resource already added
+     *
+     * @param vary
+     *     Pre-rendered list of header names, or {@code null} to leave the response unchanged
+     */
+    private static void addVary(ContainerResponseContext responseContext, String vary) {
+        if (vary == null) {
+            return;
+        }
+        String existing = responseContext.getHeaderString(HttpHeaders.VARY);
+        if (existing == null) {
+            responseContext.getHeaders().add(HttpHeaders.VARY, vary);
+            return;
+        }
+        String merged = mergeVary(existing, vary);
+        if (merged != existing) {
+            responseContext.getHeaders().putSingle(HttpHeaders.VARY, merged);
         }
-        return null;
     }
 
     /**
-     * Attempts to find an annotation on a jersey resource method by first looking at the invocable's handler method, and if not found
-     * there,  then at the handling class itself.
+     * Merges two {@code Vary} header values, ignoring case and skipping names that are already present
      *
-     * @param method
-     *     Resource method to search for the {@code annotationType}
-     * @param annotationType
-     *     Type of annotation
+     * @param existing
+     *     Current value, may be {@code null}
+     * @param vary
+     *     Comma separated header names to add
      *
-     * @return Instance of the annotation if it was found, or {@code null} if the annotation does not exist on the resource
+     * @return Merged value
      */
-    protected <T extends Annotation> T findResourceAnnotation(ResourceMethod method, Class<T> annotationType) {
-        T annotation = method.getInvocable().getHandlingMethod().getAnnotation(annotationType);
-        if (annotation == null) {
-            return method.getInvocable().getHandler().getHandlerClass().getAnnotation(annotationType);
+    static String mergeVary(String existing, String vary) {
+        if (existing == null || existing.trim().isEmpty()) {
+            return vary;
+        }
+        if (containsToken(existing, WILDCARD_ORIGIN, 0, 1)) {
+            // Varies on everything already
+            return existing;
+        }
+        StringBuilder merged = new StringBuilder(existing.length() + vary.length() + 2).append(existing);
+        int           start  = 0;
+        while (start < vary.length()) {
+            int end = vary.indexOf(',', start);
+            if (end < 0) {
+                end = vary.length();
+            }
+            int tokenStart = start;
+            int tokenEnd   = end;
+            while (tokenStart < tokenEnd && vary.charAt(tokenStart) == ' ') {
+                tokenStart++;
+            }
+            while (tokenEnd > tokenStart && vary.charAt(tokenEnd - 1) == ' ') {
+                tokenEnd--;
+            }
+            if (tokenStart < tokenEnd && !containsToken(existing, vary, tokenStart, tokenEnd)) {
+                merged.append(", ").append(vary, tokenStart, tokenEnd);
+            }
+            start = end + 1;
+        }
+        return merged.length() == existing.length() ? existing : merged.toString();
+    }
+
+    /**
+     * Checks whether a comma separated list of header names contains a name, ignoring case
+     */
+    private static boolean containsToken(String list, String token, int tokenStart, int tokenEnd) {
+        int length = tokenEnd - tokenStart;
+        int start  = 0;
+        while (start < list.length()) {
+            int end = list.indexOf(',', start);
+            if (end < 0) {
+                end = list.length();
+            }
+            while (start < end && Character.isWhitespace(list.charAt(start))) {
+                start++;
+            }
+            int nameEnd = end;
+            while (nameEnd > start && Character.isWhitespace(list.charAt(nameEnd - 1))) {
+                nameEnd--;
+            }
+            if (nameEnd - start == length && list.regionMatches(true, start, token, tokenStart, length)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the headers of a rendered pre-flight response
+     *
+     * @return {@code true} if the origin and method were allowed
+     */
+    private static boolean applyPreflightResponse(CorsPreflightResponse preflightResponse, ContainerResponseContext responseContext) {
+        if (preflightResponse.getAllowMethodsValue() != null) {
+            responseContext.getHeaders().add(ALLOW_METHODS, preflightResponse.getAllowMethodsValue());
+        }
+        addVary(responseContext, preflightResponse.getVaryValue());
+        if (!preflightResponse.isAllowed()) {
+            return false;
+        }
+        responseContext.getHeaders().add(ALLOW_ORIGIN, preflightResponse.getAllowOriginValue());
+        if (preflightResponse.getMaxAgeValue() != null) {
+            responseContext.getHeaders().add(MAX_AGE, preflightResponse.getMaxAgeValue());
+        }
+        if (preflightResponse.isAllowCredentials()) {
+            responseContext.getHeaders().add(ALLOW_CREDENTIALS, TRUE);
+        }
+        if (preflightResponse.getAllowHeadersValue() != null) {
+            responseContext.getHeaders().add(ALLOW_HEADERS, preflightResponse.getAllowHeadersValue());
         }
-        return annotation;
+        return true;
     }
 }
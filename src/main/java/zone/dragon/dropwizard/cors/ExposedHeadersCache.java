@@ -0,0 +1,83 @@
+package zone.dragon.dropwizard.cors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Renders the {@code Access-Control-Expose-Headers} value for policies that expose every response header, caching the rendered value by
+ * the response's set of header names. Most resources return the same headers on every response, so in the steady state a response costs
+ * one pass over its header names to hash them and one to compare them against the cached entry.
+ * <p>
+ * Entries live in a fixed-size table indexed by hash, and a colliding header set replaces the previous entry, so the cache stays bounded
+ * no matter how many distinct header sets are seen.
+ */
+final class ExposedHeadersCache {
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * Headers that browsers can always read, and which are therefore never listed
+     */
+    private static final HeaderNameSet SIMPLE_HEADERS = HeaderNameSet.of(CorsResponseFilter.SIMPLE_HEADERS);
+
+    private final AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(TABLE_SIZE);
+
+    /**
+     * Renders the exposed headers for a response
+     *
+     * @param headerNames
+     *     Names of the headers on the response
+     * @param canonical
+     *     Whether to render the names in lower case and sorted, rather than as they appear on the response
+     *
+     * @return Header value, or {@code null} if the response only has simple headers
+     */
+    String render(Collection<String> headerNames, boolean canonical) {
+        int hash = headerNames.size();
+        for (String name : headerNames) {
+            hash = 31 * hash + HeaderNameSet.hash(name, 0, name.length());
+        }
+        int   index = hash & (TABLE_SIZE - 1);
+        Entry entry = table.get(index);
+        if (entry == null || !entry.matches(hash, headerNames)) {
+            entry = new Entry(hash, headerNames);
+            table.set(index, entry);
+        }
+        return canonical ? entry.canonicalValue : entry.value;
+    }
+
+    private static final class Entry {
+        private final int      hash;
+        private final String[] names;
+        private final String   value;
+        private final String   canonicalValue;
+
+        private Entry(int hash, Collection<String> headerNames) {
+            this.hash = hash;
+            this.names = headerNames.toArray(new String[0]);
+            List<String> exposed = new ArrayList<>(names.length);
+            for (String name : names) {
+                if (!SIMPLE_HEADERS.contains(name)) {
+                    exposed.add(name);
+                }
+            }
+            this.value = CorsPolicy.render(exposed);
+            this.canonicalValue = CorsPolicy.render(CorsPolicy.canonicalize(exposed));
+        }
+
+        private boolean matches(int hash, Collection<String> headerNames) {
+            if (this.hash != hash || names.length != headerNames.size()) {
+                return false;
+            }
+            Iterator<String> iterator = headerNames.iterator();
+            for (String name : names) {
+                if (!name.equalsIgnoreCase(iterator.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package zone.dragon.dropwizard.cors;
+
+/**
+ * Registry of the CORS policies declared by the annotations of a single class, generated at build time by {@link CorsPolicyProcessor}; A
+ * registry for a class named {@code com.example.Outer.Inner} is named {@code com.example.Outer__Inner_CorsPolicies}.
+ */
+public interface GeneratedCorsPolicies {
+    /**
+     * Suffix of the names of generated registries
+     */
+    String SUFFIX = "_CorsPolicies";
+
+    /**
+     * Derives the name of the registry generated for a class; Underscores in the class name are escaped as {@code _1} (as JNI does), and
+     * the {@code $} that separates nested class names becomes {@code __}, so that the registries of different classes never share a name
+     *
+     * @param binaryName
+     *     Binary name of the class, as returned by {@link Class#getName()}
+     *
+     * @return Name of the registry
+     */
+    static String registryName(String binaryName) {
+        int           packageEnd = binaryName.lastIndexOf('.') + 1;
+        StringBuilder name       = new StringBuilder(binaryName.length() + SUFFIX.length() + 4).append(binaryName, 0, packageEnd);
+        for (int i = packageEnd; i < binaryName.length(); i++) {
+            char c = binaryName.charAt(i);
+            if (c == '_') {
+                name.append("_1");
+            } else if (c == '$') {
+                name.append("__");
+            } else {
+                name.append(c);
+            }
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    /**
+     * @return Policy from the annotations on the class, or {@link CorsPolicy#EMPTY} if it has none
+     */
+    CorsPolicy getClassPolicy();
+
+    /**
+     * Looks up the policy from the annotations on a method declared by the class
+     *
+     * @param signature
+     *     Method name followed by the erased type names of its parameters, such as {@code get(java.lang.String,int[])}
+     *
+     * @return Policy from the annotations on the method, or {@link CorsPolicy#EMPTY} if it has none
+     */
+    CorsPolicy getMethodPolicy(String signature);
+}
@@ -0,0 +1,131 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+import lombok.extern.slf4j.Slf4j;
+import org.glassfish.jersey.server.model.Invocable;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Set;
+
+/**
+ * Finds the {@link GeneratedCorsPolicies} of resource classes; Each class is looked up once, and the result (including the absence of a
+ * registry, for classes that have no CORS annotations or were compiled without {@link CorsPolicyProcessor}) is kept for the lifetime of
+ * the class.
+ * <p>
+ * Only the classes listed in an index read by {@link #loadIndex(ClassLoader)} are looked up, so until {@link CorsBundle} reads the indexes
+ * (or if it is told not to) every policy is read from annotations, and classes compiled without the processor never cost a failed class
+ * lookup. Registries are trusted as they are; A class recompiled without the processor keeps using the registry of its old annotations
+ * until the registry is deleted, for example by a clean build.
+ */
+@Slf4j
+final class GeneratedPolicyLoader {
+    /**
+     * Resource listing the binary names of the classes that have a generated registry, one per line
+     */
+    static final String INDEX = "META-INF/zone.dragon.dropwizard.cors/generated-policies";
+
+    private static final Set<String> INDEXED = Sets.newConcurrentHashSet();
+
+    private static final GeneratedCorsPolicies NONE = new GeneratedCorsPolicies() {
+        @Override
+        public CorsPolicy getClassPolicy() {
+            return null;
+        }
+
+        @Override
+        public CorsPolicy getMethodPolicy(String signature) {
+            return null;
+        }
+    };
+
+    private static final ClassValue<GeneratedCorsPolicies> REGISTRIES = new ClassValue<GeneratedCorsPolicies>() {
+        @Override
+        protected GeneratedCorsPolicies computeValue(Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private GeneratedPolicyLoader() {
+    }
+
+    /**
+     * Reads every index on a class path, making the registries of the classes they list available
+     *
+     * @param classLoader
+     *     Class loader whose resources are searched for indexes
+     *
+     * @return Number of classes listed
+     */
+    static int loadIndex(ClassLoader classLoader) throws IOException {
+        int              count   = 0;
+        Enumeration<URL> indexes = classLoader.getResources(INDEX);
+        while (indexes.hasMoreElements()) {
+            for (String line : Resources.readLines(indexes.nextElement(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    INDEXED.add(line.trim());
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Looks up the policy of a resource method in the registries generated for its handling method's class and its handler class
+     *
+     * @param method
+     *     Resource method
+     *
+     * @return Policy for the method, or {@code null} if either class has no generated registry
+     */
+    static CorsPolicy find(ResourceMethod method) {
+        Invocable invocable = method.getInvocable();
+        Method    handling  = invocable.getHandlingMethod();
+        Class<?>  handler   = invocable.getHandler().getHandlerClass();
+        if (handling == null || handler == null) {
+            return null;
+        }
+        Class<?>              declaring      = handling.getDeclaringClass();
+        GeneratedCorsPolicies classPolicies  = REGISTRIES.get(handler);
+        GeneratedCorsPolicies methodPolicies = declaring == handler ? classPolicies : REGISTRIES.get(declaring);
+        if (classPolicies == NONE || methodPolicies == NONE) {
+            return null;
+        }
+        return methodPolicies.getMethodPolicy(signature(handling)).merge(classPolicies.getClassPolicy());
+    }
+
+    /**
+     * @return Signature of a method in the form used by {@link GeneratedCorsPolicies#getMethodPolicy(String)}
+     */
+    static String signature(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[]    types     = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(types[i].getTypeName());
+        }
+        return signature.append(')').toString();
+    }
+
+    private static GeneratedCorsPolicies load(Class<?> type) {
+        if (type.getClassLoader() == null || !INDEXED.contains(type.getName())) {
+            return NONE;
+        }
+        try {
+            Class<?> registry = Class.forName(GeneratedCorsPolicies.registryName(type.getName()), true, type.getClassLoader());
+            return (GeneratedCorsPolicies) registry.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // A listed class's registry may have been deleted, or generated by a version of the processor that doesn't link
+            log.warn("Could not load generated CORS policies for {}, falling back to reading annotations", type.getName(), e);
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable, case-insensitive set of header names, which can check comma-separated header lists such as {@code
+ * Access-Control-Request-Headers} without splitting them or allocating. Names are kept in an open-addressed hash table so that they can be
+ * looked up by a region of the header list.
+ */
+@ToString(of = "names")
+@EqualsAndHashCode(of = "names")
+public final class HeaderNameSet {
+    /**
+     * Result of matching a header list against this set
+     */
+    public enum Match {
+        /**
+         * The list was empty, or none of the headers in it are in the set
+         */
+        NONE,
+        /**
+         * Some, but not all, of the headers in the list are in the set
+         */
+        SOME,
+        /**
+         * Every header in the list is in the set
+         */
+        ALL
+    }
+
+    /**
+     * Header names, as they were provided (with the first occurrence winning if names differ only by case)
+     */
+    @Getter
+    private final ImmutableList<String> names;
+
+    /**
+     * Names joined into a single header value, or {@code null} if the set is empty
+     */
+    @Getter
+    private final String value;
+
+    private final String[] table;
+
+    private HeaderNameSet(ImmutableList<String> names) {
+        this.names = names;
+        this.value = CorsPolicy.render(names);
+        int capacity = Integer.highestOneBit(Math.max(names.size(), 1) * 4);
+        this.table = new String[capacity];
+        for (String name : names) {
+            int index = hash(name, 0, name.length()) & (capacity - 1);
+            while (table[index] != null) {
+                index = (index + 1) & (capacity - 1);
+            }
+            table[index] = name;
+        }
+    }
+
+    /**
+     * Builds a set from a collection of header names
+     *
+     * @param names
+     *     Header names
+     *
+     * @return Set of the names
+     */
+    public static HeaderNameSet of(@NonNull Collection<String> names) {
+        List<String> unique = new ArrayList<>(names.size());
+        for (String name : names) {
+            boolean duplicate = false;
+            for (String existing : unique) {
+                if (existing.equalsIgnoreCase(name)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                unique.add(name);
+            }
+        }
+        return new HeaderNameSet(ImmutableList.copyOf(unique));
+    }
+
+    /**
+     * @return {@code true} if this set contains no header names
+     */
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * Checks if this set contains a header name, ignoring case
+     *
+     * @param name
+     *     Header name
+     *
+     * @return {@code true} if the name is in this set
+     */
+    public boolean contains(@NonNull String name) {
+        return contains(name, 0, name.length());
+    }
+
+    /**
+     * Checks if this set contains the header name found in a region of a string, ignoring case
+     *
+     * @param source
+     *     String containing the header name
+     * @param start
+     *     Index of the first character of the name
+     * @param end
+     *     Index after the last character of the name
+     *
+     * @return {@code true} if the name is in this set
+     */
+    public boolean contains(@NonNull String source, int start, int end) {
+        int mask   = table.length - 1;
+        int index  = hash(source, start, end) & mask;
+        int length = end - start;
+        for (String name = table[index]; name != null; name = table[index]) {
+            if (name.length() == length && name.regionMatches(true, 0, source, start, length)) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Checks which of the headers in a comma-separated header list are in this set
+     *
+     * @param headerList
+     *     Header list, such as the value of {@code Access-Control-Request-Headers}
+     *
+     * @return Whether all, some, or none of the headers are in this set
+     */
+    public Match match(@NonNull String headerList) {
+        boolean anyMatched   = false;
+        boolean anyUnmatched = false;
+        int     length       = headerList.length();
+        int     start        = skipSeparators(headerList, 0);
+        while (start < length) {
+            int end = tokenEnd(headerList, start);
+            if (contains(headerList, start, trimEnd(headerList, start, end))) {
+                anyMatched = true;
+            } else {
+                anyUnmatched = true;
+            }
+            start = skipSeparators(headerList, end);
+        }
+        if (!anyMatched) {
+            return Match.NONE;
+        }
+        return anyUnmatched ? Match.SOME : Match.ALL;
+    }
+
+    /**
+     * Renders the headers from a comma-separated header list that are in this set, using the case of the names in this set
+     *
+     * @param headerList
+     *     Header list, such as the value of {@code Access-Control-Request-Headers}
+     *
+     * @return Header value containing the matching names, or {@code null} if none of them match
+     */
+    public String retain(@NonNull String headerList) {
+        List<String> retained = new ArrayList<>();
+        int          length   = headerList.length();
+        int          start    = skipSeparators(headerList, 0);
+        while (start < length) {
+            int end     = tokenEnd(headerList, start);
+            int trimmed = trimEnd(headerList, start, end);
+            for (String name : names) {
+                if (name.length() == trimmed - start && name.regionMatches(true, 0, headerList, start, trimmed - start)) {
+                    if (!retained.contains(name)) {
+                        retained.add(name);
+                    }
+                    break;
+                }
+            }
+            start = skipSeparators(headerList, end);
+        }
+        return retained.isEmpty() ? null : CorsPolicy.LIST_JOINER.join(retained);
+    }
+
+    private static int skipSeparators(String headerList, int index) {
+        while (index < headerList.length()) {
+            char c = headerList.charAt(index);
+            if (c != ',' && c != ' ' && c != '\t') {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private static int tokenEnd(String headerList, int start) {
+        int end = headerList.indexOf(',', start);
+        return end < 0 ? headerList.length() : end;
+    }
+
+    private static int trimEnd(String headerList, int start, int end) {
+        while (end > start && (headerList.charAt(end - 1) == ' ' || headerList.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Computes a case-insensitive hash of a region of a string, without allocating a lower-cased copy
+     */
+    static int hash(String source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,58 @@
+package zone.dragon.dropwizard.cors;
+
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link OriginResolver} backed by a concurrent map, for tests and local development; Origins are denied unless they have been allowed.
+ */
+public class InMemoryOriginResolver implements OriginResolver {
+    private final Map<String, OriginDecision> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Allows an origin with the policy's credentials and max age
+     *
+     * @param origin
+     *     Origin to allow
+     *
+     * @return This resolver
+     */
+    public InMemoryOriginResolver allow(@NonNull String origin) {
+        return allow(origin, OriginDecision.allow());
+    }
+
+    /**
+     * Sets the decision for an origin
+     *
+     * @param origin
+     *     Origin to set the decision for
+     * @param decision
+     *     Decision for the origin
+     *
+     * @return This resolver
+     */
+    public InMemoryOriginResolver allow(@NonNull String origin, @NonNull OriginDecision decision) {
+        decisions.put(OriginMatcher.normalize(origin), decision);
+        return this;
+    }
+
+    /**
+     * Denies an origin that was previously allowed
+     *
+     * @param origin
+     *     Origin to deny
+     *
+     * @return This resolver
+     */
+    public InMemoryOriginResolver deny(@NonNull String origin) {
+        decisions.remove(OriginMatcher.normalize(origin));
+        return this;
+    }
+
+    @Override
+    public OriginDecision resolve(String origin) {
+        return decisions.getOrDefault(origin, OriginDecision.deny());
+    }
+}
@@ -0,0 +1,97 @@
+package zone.dragon.dropwizard.cors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+/**
+ * {@link CorsFlightRecorder} backed by {@code jdk.jfr}; Only loaded by {@link CorsFlightRecorder#create()} once it has checked that the
+ * JFR API exists. Both events are enabled by default whenever a recording is running, and can be turned off in a recording's settings
+ * by name.
+ */
+final class JfrCorsFlightRecorder extends CorsFlightRecorder {
+    private static final EventType SIMPLE_REQUEST = EventType.getEventType(SimpleRequestEvent.class);
+    private static final EventType PREFLIGHT      = EventType.getEventType(PreflightEvent.class);
+
+    @Override
+    boolean isEnabled() {
+        return SIMPLE_REQUEST.isEnabled() || PREFLIGHT.isEnabled();
+    }
+
+    @Override
+    void simpleRequest(ResourceMethod method, String origin, boolean allowed, CorsPolicyLevel level, long elapsedNanos) {
+        SimpleRequestEvent event = new SimpleRequestEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.resourceMethod = describe(method);
+        event.origin = origin;
+        event.allowed = allowed;
+        event.policyLevel = level.name();
+        event.elapsed = elapsedNanos;
+        event.commit();
+    }
+
+    @Override
+    void preflightRequest(String resource, String requestMethod, String origin, boolean allowed, CorsPolicyLevel level, long elapsedNanos) {
+        PreflightEvent event = new PreflightEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.resource = resource;
+        event.requestMethod = requestMethod;
+        event.origin = origin;
+        event.allowed = allowed;
+        event.policyLevel = level.name();
+        event.elapsed = elapsedNanos;
+        event.commit();
+    }
+
+    @Name("zone.dragon.dropwizard.cors.SimpleRequest")
+    @Label("CORS Simple Request")
+    @Description("CORS policy applied to a simple (non pre-flight) cross-origin request")
+    @Category({"Dropwizard", "CORS"})
+    @StackTrace(false)
+    static class SimpleRequestEvent extends Event {
+        @Label("Resource Method")
+        String  resourceMethod;
+        @Label("Origin")
+        String  origin;
+        @Label("Allowed")
+        boolean allowed;
+        @Label("Policy Level")
+        @Description("Where the allowed origins came from: METHOD, CLASS, LOCATOR, CONFIGURATION or NONE")
+        String  policyLevel;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long    elapsed;
+    }
+
+    @Name("zone.dragon.dropwizard.cors.Preflight")
+    @Label("CORS Pre-Flight Request")
+    @Description("CORS pre-flight request answered by the response filter")
+    @Category({"Dropwizard", "CORS"})
+    @StackTrace(false)
+    static class PreflightEvent extends Event {
+        @Label("Resource")
+        String  resource;
+        @Label("Requested Method")
+        String  requestMethod;
+        @Label("Origin")
+        String  origin;
+        @Label("Allowed")
+        boolean allowed;
+        @Label("Policy Level")
+        @Description("Where the allowed origins of the requested method came from: METHOD, CLASS, LOCATOR, CONFIGURATION or NONE")
+        String  policyLevel;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long    elapsed;
+    }
+}
@@ -0,0 +1,109 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.base.Preconditions;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free memo of values computed for a chain of matched resource locators and the resource or resource method at the end of
+ * it, such as the merged policy of a method reached through sub-resource locators. Jersey reuses its runtime models of sub-resources, so
+ * chains are compared by the identity of their elements; Looking up a chain hashes and compares it in place, without allocating.
+ * <p>
+ * Like {@link ExposedHeadersCache}, entries live in a fixed-size table indexed by hash, and a colliding chain replaces the previous entry,
+ * so the memo stays bounded no matter how many distinct chains are matched.
+ *
+ * @param <T>
+ *     Type of the element at the end of the chain
+ * @param <V>
+ *     Type of the memoized values
+ */
+final class LocatorChainMemo<T, V> {
+    private final AtomicReferenceArray<Entry<T, V>> table;
+    private final int                               mask;
+
+    /**
+     * Creates a memo
+     *
+     * @param size
+     *     Number of entries; Rounded up to a power of two
+     */
+    LocatorChainMemo(int size) {
+        Preconditions.checkArgument(size > 0, "size must be positive");
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Looks up the value memoized for a chain
+     *
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the target to the furthest
+     * @param target
+     *     Resource or resource method at the end of the chain
+     *
+     * @return Memoized value, or {@code null} if there is none
+     */
+    V get(List<ResourceMethod> locators, T target) {
+        int         hash  = hash(locators, target);
+        Entry<T, V> entry = table.get(hash & mask);
+        if (entry != null && entry.matches(hash, locators, target)) {
+            return entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Memoizes the value for a chain, replacing any entry that collides with it
+     *
+     * @param locators
+     *     Matched resource locators, ordered from the closest to the target to the furthest
+     * @param target
+     *     Resource or resource method at the end of the chain
+     * @param value
+     *     Value to memoize
+     *
+     * @return {@code value}
+     */
+    V put(List<ResourceMethod> locators, T target, V value) {
+        int hash = hash(locators, target);
+        table.set(hash & mask, new Entry<>(hash, locators.toArray(new ResourceMethod[0]), target, value));
+        return value;
+    }
+
+    private static int hash(List<ResourceMethod> locators, Object target) {
+        int hash = System.identityHashCode(target);
+        for (int i = 0; i < locators.size(); i++) {
+            hash = 31 * hash + System.identityHashCode(locators.get(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry<T, V> {
+        private final int              hash;
+        private final ResourceMethod[] locators;
+        private final T                target;
+        private final V                value;
+
+        private Entry(int hash, ResourceMethod[] locators, T target, V value) {
+            this.hash = hash;
+            this.locators = locators;
+            this.target = target;
+            this.value = value;
+        }
+
+        private boolean matches(int hash, List<ResourceMethod> locators, Object target) {
+            if (this.hash != hash || this.target != target || this.locators.length != locators.size()) {
+                return false;
+            }
+            for (int i = 0; i < this.locators.length; i++) {
+                if (this.locators[i] != locators.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
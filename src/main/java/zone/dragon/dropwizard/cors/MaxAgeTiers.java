@@ -0,0 +1,68 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Renders the {@code Access-Control-Max-Age} header for an origin from the configured {@link CorsMaxAgeTierConfiguration tiers}; The first
+ * tier whose origins match decides the value, and origins that don't match any tier get the default max-age.
+ */
+@ToString
+@EqualsAndHashCode
+final class MaxAgeTiers {
+    private final ImmutableList<OriginMatcher> origins;
+    private final ImmutableList<String>        values;
+    private final String                       defaultValue;
+
+    private MaxAgeTiers(ImmutableList<OriginMatcher> origins, ImmutableList<String> values, String defaultValue) {
+        this.origins = origins;
+        this.values = values;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Compiles the configured tiers
+     *
+     * @param tiers
+     *     Configured tiers, in order of precedence
+     * @param defaultMaxAge
+     *     Max-age for origins that don't match any tier, or {@code null} to not send one
+     *
+     * @return Compiled tiers, or {@code null} if there are none
+     */
+    static MaxAgeTiers of(@NonNull List<CorsMaxAgeTierConfiguration> tiers, Long defaultMaxAge) {
+        if (tiers.isEmpty()) {
+            return null;
+        }
+        ImmutableList.Builder<OriginMatcher> origins = ImmutableList.builder();
+        ImmutableList.Builder<String>        values  = ImmutableList.builder();
+        for (CorsMaxAgeTierConfiguration tier : tiers) {
+            origins.add(OriginMatcher.of(tier.getOrigins()));
+            values.add(render(tier.getMaxAge()));
+        }
+        return new MaxAgeTiers(origins.build(), values.build(), render(defaultMaxAge));
+    }
+
+    private static String render(Long maxAge) {
+        return maxAge == null ? null : maxAge.toString().intern();
+    }
+
+    /**
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     *
+     * @return Value of the {@code Access-Control-Max-Age} header for the origin, or {@code null} if none should be sent
+     */
+    String getValue(String origin) {
+        for (int i = 0; i < origins.size(); i++) {
+            if (origins.get(i).matches(origin)) {
+                return values.get(i);
+            }
+        }
+        return defaultValue;
+    }
+}
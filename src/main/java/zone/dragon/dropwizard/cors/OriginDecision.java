@@ -0,0 +1,95 @@
+package zone.dragon.dropwizard.cors;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable result of an {@link OriginResolver}; An allowed origin can override the {@code Access-Control-Allow-Credentials} and {@code
+ * Access-Control-Max-Age} values of the policy that referenced the resolver.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class OriginDecision {
+    private static final OriginDecision ALLOW = new OriginDecision(true, null, null);
+    private static final OriginDecision DENY  = new OriginDecision(false, null, null);
+
+    /**
+     * Whether the origin is allowed
+     */
+    private final boolean allowed;
+
+    /**
+     * Whether credentials are allowed for the origin, or {@code null} to use the policy's value
+     */
+    private final Boolean allowCredentials;
+
+    /**
+     * Pre-flight max age for the origin in seconds, or {@code null} to use the policy's value
+     */
+    private final Long maxAge;
+
+    /**
+     * Rendered value of {@link #getMaxAge()}
+     */
+    private final String maxAgeValue;
+
+    private OriginDecision(boolean allowed, Boolean allowCredentials, Long maxAge) {
+        this.allowed = allowed;
+        this.allowCredentials = allowCredentials;
+        this.maxAge = maxAge;
+        this.maxAgeValue = maxAge == null ? null : maxAge.toString().intern();
+    }
+
+    /**
+     * @return Decision that allows an origin with the policy's credentials and max age
+     */
+    public static OriginDecision allow() {
+        return ALLOW;
+    }
+
+    /**
+     * Creates a decision that allows an origin with its own credentials and max age
+     *
+     * @param allowCredentials
+     *     Whether credentials are allowed, or {@code null} to use the policy's value
+     * @param maxAge
+     *     Pre-flight max age in seconds, or {@code null} to use the policy's value
+     *
+     * @return Decision that allows the origin
+     */
+    public static OriginDecision allow(Boolean allowCredentials, Long maxAge) {
+        if (allowCredentials == null && maxAge == null) {
+            return ALLOW;
+        }
+        return new OriginDecision(true, allowCredentials, maxAge);
+    }
+
+    /**
+     * @return Decision that denies an origin
+     */
+    public static OriginDecision deny() {
+        return DENY;
+    }
+
+    /**
+     * @param policyValue
+     *     Value from the policy
+     *
+     * @return Whether credentials are allowed for the origin
+     */
+    public boolean resolveAllowCredentials(boolean policyValue) {
+        return allowCredentials == null ? policyValue : allowCredentials;
+    }
+
+    /**
+     * @param policyValue
+     *     Rendered value from the policy, may be {@code null}
+     *
+     * @return Rendered {@code Access-Control-Max-Age} value for the origin, or {@code null} if not sent
+     */
+    public String resolveMaxAgeValue(String policyValue) {
+        return maxAgeValue == null ? policyValue : maxAgeValue;
+    }
+}
@@ -0,0 +1,159 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableSet;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Locale;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.WILDCARD_ORIGIN;
+
+/**
+ * Matches request origins against the origins whitelisted by a policy in constant time. Origins are normalized before being compared, so
+ * that differences in the case of the scheme or host, or the presence of a default port, don't prevent a match. Subdomain patterns such as
+ * {@code https://*.example.com} are compiled into a single {@link OriginTrie}.
+ */
+@ToString(of = {"wildcard", "origins", "patterns", "resolver"})
+@EqualsAndHashCode(of = {"wildcard", "origins", "patterns", "resolver"})
+public final class OriginMatcher {
+    private static final String HTTP_SCHEME  = "http://";
+    private static final String HTTPS_SCHEME = "https://";
+    private static final String HTTP_PORT    = ":80";
+    private static final String HTTPS_PORT   = ":443";
+
+    private final boolean                         wildcard;
+    private final ImmutableSet<String>            origins;
+    private final ImmutableSet<String>            patterns;
+    private final OriginTrie                      patternTrie;
+    private final Class<? extends OriginResolver> resolver;
+
+    private OriginMatcher(
+        boolean wildcard, ImmutableSet<String> origins, ImmutableSet<String> patterns, Class<? extends OriginResolver> resolver
+    ) {
+        this.wildcard = wildcard;
+        this.origins = origins;
+        this.patterns = patterns;
+        this.resolver = resolver;
+        this.patternTrie = new OriginTrie();
+        patterns.forEach(patternTrie::add);
+    }
+
+    /**
+     * Builds a matcher for a list of whitelisted origins
+     *
+     * @param allowedOrigins
+     *     Origins or subdomain patterns that are allowed, or {@code "*"} to allow any origin
+     *
+     * @return Matcher for the origins
+     *
+     * @throws IllegalArgumentException
+     *     if a pattern is not in the form {@code scheme://*.host[:port]}
+     */
+    public static OriginMatcher of(@NonNull Collection<String> allowedOrigins) {
+        return of(allowedOrigins, null);
+    }
+
+    /**
+     * Builds a matcher for a list of whitelisted origins, and a resolver for origins that aren't in the list
+     *
+     * @param allowedOrigins
+     *     Origins or subdomain patterns that are always allowed; {@code "*"} is ignored if there is a resolver
+     * @param resolver
+     *     Class of the {@link OriginResolver} that decides whether other origins are allowed, or {@code null} if there is none
+     *
+     * @return Matcher for the origins
+     *
+     * @throws IllegalArgumentException
+     *     if a pattern is not in the form {@code scheme://*.host[:port]}
+     */
+    public static OriginMatcher of(@NonNull Collection<String> allowedOrigins, Class<? extends OriginResolver> resolver) {
+        boolean                      wildcard = false;
+        ImmutableSet.Builder<String> origins  = ImmutableSet.builder();
+        ImmutableSet.Builder<String> patterns = ImmutableSet.builder();
+        for (String origin : allowedOrigins) {
+            if (WILDCARD_ORIGIN.equals(origin)) {
+                wildcard = resolver == null;
+            } else if (OriginTrie.isPattern(origin)) {
+                patterns.add(normalize(origin));
+            } else {
+                origins.add(normalize(origin));
+            }
+        }
+        return new OriginMatcher(wildcard, origins.build(), patterns.build(), resolver);
+    }
+
+    /**
+     * @return {@code true} if any origin is allowed
+     */
+    public boolean isWildcard() {
+        return wildcard;
+    }
+
+    /**
+     * @return Class of the {@link OriginResolver} for origins that this matcher doesn't match, or {@code null} if there is none
+     */
+    public Class<? extends OriginResolver> getResolver() {
+        return resolver;
+    }
+
+    /**
+     * Checks if an origin is allowed without consulting the {@link #getResolver() resolver}
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     *
+     * @return {@code true} if the origin is allowed by this matcher
+     */
+    public boolean matches(String origin) {
+        if (wildcard) {
+            return true;
+        }
+        if (origin == null) {
+            return false;
+        }
+        String normalized = normalize(origin);
+        return origins.contains(normalized) || !patternTrie.isEmpty() && patternTrie.matches(normalized);
+    }
+
+    /**
+     * Checks if an origin is one of the origins listed by name, rather than allowed by the wildcard, a subdomain pattern or a resolver
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header, may be {@code null}
+     *
+     * @return {@code true} if the origin is listed
+     */
+    public boolean isListed(String origin) {
+        return origin != null && !origins.isEmpty() && origins.contains(normalize(origin));
+    }
+
+    /**
+     * Normalizes an origin by lower-casing it and removing the port if it is the default for the scheme; Origins that are already in
+     * normal form are returned as-is without allocating.
+     *
+     * @param origin
+     *     Origin to normalize
+     *
+     * @return Normalized origin
+     */
+    static String normalize(@NonNull String origin) {
+        boolean lowerCase = true;
+        for (int i = 0; i < origin.length(); i++) {
+            char c = origin.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                lowerCase = false;
+                break;
+            }
+        }
+        String normalized = lowerCase ? origin : origin.toLowerCase(Locale.ROOT);
+        if (normalized.startsWith(HTTP_SCHEME) && normalized.endsWith(HTTP_PORT)) {
+            return normalized.substring(0, normalized.length() - HTTP_PORT.length());
+        }
+        if (normalized.startsWith(HTTPS_SCHEME) && normalized.endsWith(HTTPS_PORT)) {
+            return normalized.substring(0, normalized.length() - HTTPS_PORT.length());
+        }
+        return normalized;
+    }
+}
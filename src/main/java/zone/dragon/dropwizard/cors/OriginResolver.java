@@ -0,0 +1,25 @@
+package zone.dragon.dropwizard.cors;
+
+/**
+ * Decides whether an origin is allowed at runtime, for origins that can't be listed in {@link
+ * zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins} (such as those stored in a tenant database). Resolvers are referenced by class
+ * from {@link zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins#resolver()}, and instances are added to the application with {@link
+ * CorsBundle#addOriginResolver(OriginResolver)}.
+ * <p>
+ * Decisions are cached by {@link CachingOriginResolver}, so implementations may block on a backing store; They must be thread-safe.
+ */
+@FunctionalInterface
+public interface OriginResolver {
+    /**
+     * Decides whether an origin is allowed
+     *
+     * @param origin
+     *     Normalized value of the {@code Origin} request header (lower case, without a default port)
+     *
+     * @return Decision for the origin
+     *
+     * @throws Exception
+     *     If the decision can't be made, in which case the origin is denied but the decision is not cached
+     */
+    OriginDecision resolve(String origin) throws Exception;
+}
@@ -0,0 +1,188 @@
+package zone.dragon.dropwizard.cors;
+
+import lombok.NonNull;
+
+/**
+ * Matches origins against a set of subdomain patterns, such as {@code https://*.example.com}, with a single walk of a trie keyed on the
+ * scheme, port, and host labels of the origin in reverse order. The cost of a match depends only on the number of labels in the origin,
+ * not on the number of patterns, and no objects are allocated while matching.
+ * <p>
+ * A {@code *} label matches one or more labels, so {@code https://*.example.com} matches {@code https://a.example.com} and {@code
+ * https://a.b.example.com}, but not {@code https://example.com}. Instances are built once and are safe to share between threads after
+ * construction.
+ */
+final class OriginTrie {
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String WILDCARD_LABEL   = "*.";
+
+    private final Node root = new Node();
+
+    private boolean empty = true;
+
+    /**
+     * Checks if a value of {@link zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins} is a subdomain pattern rather than an exact
+     * origin
+     *
+     * @param origin
+     *     Origin or pattern
+     *
+     * @return {@code true} if the value is a pattern
+     */
+    static boolean isPattern(@NonNull String origin) {
+        return origin.indexOf('*') >= 0;
+    }
+
+    /**
+     * Adds a normalized pattern to this trie
+     *
+     * @param pattern
+     *     Pattern in the form {@code scheme://*.host[:port]}
+     *
+     * @throws IllegalArgumentException
+     *     if the pattern is not in the supported form
+     */
+    void add(@NonNull String pattern) {
+        int schemeEnd = pattern.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd <= 0 || !pattern.startsWith(WILDCARD_LABEL, schemeEnd + SCHEME_SEPARATOR.length())) {
+            throw new IllegalArgumentException(String.format("Origin pattern %s must be in the form scheme://*.host[:port]", pattern));
+        }
+        int hostStart = schemeEnd + SCHEME_SEPARATOR.length() + WILDCARD_LABEL.length();
+        int hostEnd   = hostEnd(pattern, hostStart);
+        if (hostEnd <= hostStart || pattern.indexOf('*', hostStart) >= 0) {
+            throw new IllegalArgumentException(String.format("Origin pattern %s must be in the form scheme://*.host[:port]", pattern));
+        }
+        Node node = root.getOrCreate(pattern.substring(0, schemeEnd));
+        node = node.getOrCreate(hostEnd == pattern.length() ? "" : pattern.substring(hostEnd + 1));
+        int end = hostEnd;
+        while (end > hostStart) {
+            int dot   = pattern.lastIndexOf('.', end - 1);
+            int start = dot < hostStart ? hostStart : dot + 1;
+            node = node.getOrCreate(pattern.substring(start, end));
+            end = start - 1;
+        }
+        node.wildcard = true;
+        empty = false;
+    }
+
+    /**
+     * @return {@code true} if no patterns have been added
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Checks if a normalized origin matches any of the patterns in this trie
+     *
+     * @param origin
+     *     Normalized origin
+     *
+     * @return {@code true} if the origin matches a pattern
+     */
+    boolean matches(@NonNull String origin) {
+        int schemeEnd = origin.indexOf(SCHEME_SEPARATOR);
+        if (schemeEnd <= 0) {
+            return false;
+        }
+        int  hostStart = schemeEnd + SCHEME_SEPARATOR.length();
+        int  hostEnd   = hostEnd(origin, hostStart);
+        Node node      = root.get(origin, 0, schemeEnd);
+        if (node == null) {
+            return false;
+        }
+        node = node.get(origin, hostEnd == origin.length() ? hostEnd : hostEnd + 1, origin.length());
+        int end = hostEnd;
+        while (node != null && end > hostStart) {
+            int dot   = origin.lastIndexOf('.', end - 1);
+            int start = dot < hostStart ? hostStart : dot + 1;
+            node = node.get(origin, start, end);
+            end = start - 1;
+            if (node != null && node.wildcard && end > hostStart) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the end of the host in an origin, which is either the separator before the port or the end of the origin
+     */
+    private static int hostEnd(String origin, int hostStart) {
+        int colon = origin.lastIndexOf(':');
+        if (colon >= hostStart && colon > origin.lastIndexOf(']')) {
+            return colon;
+        }
+        return origin.length();
+    }
+
+    /**
+     * Trie node whose children are kept in an open-addressed hash table, so that they can be looked up by a region of the origin without
+     * having to create a substring
+     */
+    private static final class Node {
+        private String[] keys     = new String[4];
+        private Node[]   children = new Node[4];
+        private int      size;
+        private boolean  wildcard;
+
+        Node get(String source, int start, int end) {
+            int mask   = keys.length - 1;
+            int index  = hash(source, start, end) & mask;
+            int length = end - start;
+            for (String key = keys[index]; key != null; key = keys[index]) {
+                if (key.length() == length && key.regionMatches(0, source, start, length)) {
+                    return children[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        Node getOrCreate(String key) {
+            Node child = get(key, 0, key.length());
+            if (child == null) {
+                if ((size + 1) * 2 > keys.length) {
+                    resize();
+                }
+                child = new Node();
+                insert(key, child);
+            }
+            return child;
+        }
+
+        private void insert(String key, Node child) {
+            int mask  = keys.length - 1;
+            int index = key.hashCode() & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            children[index] = child;
+            size++;
+        }
+
+        private void resize() {
+            String[] oldKeys     = keys;
+            Node[]   oldChildren = children;
+            keys = new String[oldKeys.length * 2];
+            children = new Node[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+
+        /**
+         * Computes the same hash as {@link String#hashCode()} would for the given region
+         */
+        private static int hash(String source, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + source.charAt(i);
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Limits the rate of pre-flight requests from each origin, without any locks. Each origin gets a token bucket, implemented as the generic
+ * cell rate algorithm: the bucket is a single "theoretical arrival time" that is advanced with a compare-and-set for every permitted
+ * request, so it fits in one slot of an {@link AtomicLongArray}.
+ * <p>
+ * Buckets live in a fixed-size table split into stripes of {@value #WAYS} slots, and an origin can only use the slots of the stripe that
+ * its hash selects. When an origin that isn't in its stripe arrives, it takes over an empty slot or the slot of the most idle origin in the
+ * stripe, so memory use is bounded no matter how many origins are seen. Each stripe remembers the last origin it evicted and its bucket:
+ * If that origin comes back, it gets its old bucket again, so that two origins can't regain their burst by pushing each other out, while
+ * any other origin starts with a full bucket. A flood of new origins therefore can't leave an origin that was pushed out with less than
+ * its burst when it returns. Because the origin of a slot and its bucket are updated separately, an origin can occasionally be given a
+ * fresh bucket early, and origins that take turns in groups larger than a stripe regain their burst; the limiter is approximate in that
+ * sense, but never blocks.
+ * <p>
+ * Origins are normalized as in {@link OriginMatcher}, so that spellings of the same origin that differ in case or in an explicit default
+ * port share a bucket.
+ */
+public final class PreflightRateLimiter {
+    private static final int WAYS = 4;
+
+    private final long                         intervalNanos;
+    private final long                         toleranceNanos;
+    private final int                          stripeMask;
+    private final AtomicReferenceArray<String> origins;
+    private final AtomicLongArray              arrivals;
+    private final AtomicReferenceArray<String> evictedOrigins;
+    private final AtomicLongArray              evictedArrivals;
+    private final String                       retryAfterValue;
+
+    /**
+     * Creates a limiter
+     *
+     * @param permitsPerSecond
+     *     Sustained number of pre-flight requests allowed per origin per second
+     * @param burst
+     *     Number of pre-flight requests an idle origin can make at once
+     * @param size
+     *     Maximum number of origins to track; Rounded up to a power of two
+     */
+    public PreflightRateLimiter(double permitsPerSecond, int burst, int size) {
+        Preconditions.checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+        Preconditions.checkArgument(burst > 0, "burst must be positive");
+        Preconditions.checkArgument(size > 0, "size must be positive");
+        int capacity = Math.max(WAYS, Integer.highestOneBit(size - 1) << 1);
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.stripeMask = capacity / WAYS - 1;
+        this.origins = new AtomicReferenceArray<>(capacity);
+        this.arrivals = new AtomicLongArray(capacity);
+        this.evictedOrigins = new AtomicReferenceArray<>(capacity / WAYS);
+        this.evictedArrivals = new AtomicLongArray(capacity / WAYS);
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(intervalNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        this.retryAfterValue = Long.toString(retryAfterSeconds).intern();
+    }
+
+    /**
+     * Takes a permit for a pre-flight request
+     *
+     * @param origin
+     *     Value of the {@code Origin} request header
+     *
+     * @return {@code true} if the request is permitted, or {@code false} if the origin has exceeded its rate
+     */
+    public boolean tryAcquire(@NonNull String origin) {
+        long now  = System.nanoTime();
+        int  slot = findSlot(OriginMatcher.normalize(origin), now);
+        while (true) {
+            long arrival = arrivals.get(slot);
+            long start   = arrival - now > 0 ? arrival : now;
+            if (start - now > toleranceNanos) {
+                return false;
+            }
+            if (arrivals.compareAndSet(slot, arrival, start + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Rendered {@code Retry-After} value; The number of seconds until an origin that was just rejected gets its next permit,
+     * rounded up
+     */
+    public String getRetryAfterValue() {
+        return retryAfterValue;
+    }
+
+    private int findSlot(String origin, long now) {
+        int hash = origin.hashCode();
+        int base = ((hash ^ (hash >>> 16)) & stripeMask) * WAYS;
+        int victim = -1;
+        for (int i = 0; i < WAYS; i++) {
+            String slotOrigin = origins.get(base + i);
+            if (origin.equals(slotOrigin)) {
+                return base + i;
+            }
+            if (slotOrigin == null && victim < 0) {
+                victim = base + i;
+            }
+        }
+        long arrival = now - intervalNanos;
+        if (victim < 0) {
+            victim = findIdlest(base);
+            int stripe = base / WAYS;
+            if (origin.equals(evictedOrigins.get(stripe))) {
+                arrival = evictedArrivals.get(stripe);
+            }
+            evictedArrivals.set(stripe, arrivals.get(victim));
+            evictedOrigins.set(stripe, origins.get(victim));
+        }
+        origins.set(victim, origin);
+        arrivals.set(victim, arrival);
+        return victim;
+    }
+
+    /**
+     * Finds the slot in a stripe whose bucket has been full the longest
+     */
+    private int findIdlest(int base) {
+        int  victim        = base;
+        long oldestArrival = arrivals.get(base);
+        for (int i = 1; i < WAYS; i++) {
+            long arrival = arrivals.get(base + i);
+            if (arrival - oldestArrival < 0) {
+                victim = base + i;
+                oldestArrival = arrival;
+            }
+        }
+        return victim;
+    }
+}
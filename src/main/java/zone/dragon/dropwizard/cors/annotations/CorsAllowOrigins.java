@@ -1,5 +1,7 @@
 package zone.dragon.dropwizard.cors.annotations;
 
+import zone.dragon.dropwizard.cors.OriginResolver;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -12,7 +14,15 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface CorsAllowOrigins {
     /**
-     * List of cross-origins that are allowed to call this resource, or {@code "*"} if any origin can call this resource (the default)
+     * List of cross-origins that are allowed to call this resource, or {@code "*"} if any origin can call this resource (the default);
+     * Subdomains can be allowed with a pattern such as {@code "https://*.example.com"}, where {@code *} matches one or more labels.
      */
     String[] value() default {"*"};
+
+    /**
+     * Resolver that decides at runtime whether origins that aren't listed in {@link #value()} are allowed; When a resolver is set, {@code
+     * "*"} in {@link #value()} is ignored, so the listed origins are only those that are always allowed. The resolver must be added to the
+     * application with {@link zone.dragon.dropwizard.cors.CorsBundle#addOriginResolver(OriginResolver)}.
+     */
+    Class<? extends OriginResolver> resolver() default OriginResolver.class;
 }
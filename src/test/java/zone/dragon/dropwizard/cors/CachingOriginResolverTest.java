@@ -0,0 +1,62 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingOriginResolverTest {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private CachingOriginResolver resolver(OriginResolver delegate) {
+        return new CachingOriginResolver(
+            delegate,
+            TimeUnit.MINUTES.toNanos(1),
+            TimeUnit.MINUTES.toNanos(10),
+            100,
+            MoreExecutors.directExecutor()
+        );
+    }
+
+    @Test
+    public void testCachesAllowedAndDenied() {
+        CachingOriginResolver resolver = resolver(origin -> {
+            calls.incrementAndGet();
+            return origin.equals("https://example.com") ? OriginDecision.allow() : OriginDecision.deny();
+        });
+        assertThat(resolver.resolve("https://example.com").isAllowed()).isTrue();
+        assertThat(resolver.resolve("HTTPS://EXAMPLE.COM:443").isAllowed()).isTrue();
+        assertThat(resolver.resolve("https://example.org").isAllowed()).isFalse();
+        assertThat(resolver.resolve("https://example.org").isAllowed()).isFalse();
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(resolver.getStats().hitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailuresAreDeniedBriefly() throws InterruptedException {
+        OriginResolver delegate = origin -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return OriginDecision.allow();
+        };
+        CachingOriginResolver resolver = new CachingOriginResolver(
+            delegate,
+            TimeUnit.MINUTES.toNanos(1),
+            TimeUnit.MINUTES.toNanos(10),
+            100,
+            MoreExecutors.directExecutor(),
+            TimeUnit.MILLISECONDS.toNanos(50)
+        );
+        assertThat(resolver.resolve("https://example.com").isAllowed()).isFalse();
+        // Denied without calling the resolver again until the failure expires
+        assertThat(resolver.resolve("https://example.com").isAllowed()).isFalse();
+        assertThat(calls.get()).isEqualTo(1);
+        Thread.sleep(100);
+        assertThat(resolver.resolve("https://example.com").isAllowed()).isTrue();
+        assertThat(calls.get()).isEqualTo(2);
+    }
+}
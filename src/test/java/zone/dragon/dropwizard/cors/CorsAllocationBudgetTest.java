@@ -0,0 +1,199 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+/**
+ * Checks that each path through {@link CorsResponseFilter#filter} stays within a budget of bytes allocated per request. The entries that
+ * Jersey's header map allocates for the headers the filter adds are measured separately by replaying the same headers without the filter,
+ * and are not part of the budgets, which are therefore just above what the filter itself allocates.
+ */
+public class CorsAllocationBudgetTest {
+    private static final String ALLOWED_ORIGIN = "https://app.example.com";
+    private static final String DENIED_ORIGIN  = "https://evil.example.com";
+    private static final int    WARMUP         = 20_000;
+    private static final int    ITERATIONS     = 10_000;
+
+    /*
+     * Budgets, in bytes per request on top of the header map; The paths that don't read request headers allocate nothing, so their budget
+     * is below the cost of even an empty list. Reading a request header makes Jersey copy it through a StringBuilder, which pre-flight
+     * requests do twice, and the cached pre-flight path also allocates its lookup key and a node in the cache's access queue. The fake
+     * ExtendedUriInfo provider allocates nothing, unlike HK2, so the fixture fails the no-origin path outright if it calls the provider.
+     */
+    private static final long NO_ORIGIN_BUDGET        = 16;
+    private static final long ALLOWED_BUDGET          = 16;
+    private static final long DENIED_BUDGET           = 16;
+    private static final long PREFLIGHT_BUDGET        = 512;
+    private static final long CACHED_PREFLIGHT_BUDGET = 512;
+    private static final long EXPOSE_ALL_BUDGET       = 96;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @Path("someUri")
+    @CorsAllowOrigins({"https://app.example.com", "https://www.example.com"})
+    @CorsMaxAge(600)
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+
+        @PUT
+        @CorsAllowHeaders({"Authorization", "Content-Type"})
+        public String put() {
+            return "put";
+        }
+
+        @OPTIONS
+        public String options() {
+            return "options";
+        }
+    }
+
+    @Path("exposeAll")
+    @CorsAllowOrigins
+    @CorsExposeHeaders
+    public static class ExposeAllResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    private final Resource           resource          = Resource.from(TestResource.class);
+    private final Resource           exposeAllResource = Resource.from(ExposeAllResource.class);
+    private final CorsPolicyRegistry registry          = new CorsPolicyRegistry();
+
+    {
+        registry.compile(new ResourceModel.Builder(false).addResource(resource).addResource(exposeAllResource).build());
+    }
+
+    @BeforeClass
+    public static void enableAllocationTracking() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testNoOrigin() throws IOException {
+        assertWithinBudget(fixture(HttpMethod.GET, ImmutableMap.of(), ImmutableMap.of(), resource), NO_ORIGIN_BUDGET);
+    }
+
+    @Test
+    public void testAllowedOrigin() throws IOException {
+        Map<String, String> requestHeaders = ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN);
+        assertWithinBudget(fixture(HttpMethod.GET, requestHeaders, ImmutableMap.of(), resource), ALLOWED_BUDGET);
+    }
+
+    @Test
+    public void testDeniedOrigin() throws IOException {
+        Map<String, String> requestHeaders = ImmutableMap.of(HttpHeaders.ORIGIN, DENIED_ORIGIN);
+        assertWithinBudget(fixture(HttpMethod.GET, requestHeaders, ImmutableMap.of(), resource), DENIED_BUDGET);
+    }
+
+    @Test
+    public void testPreflight() throws IOException {
+        Map<String, String> requestHeaders = ImmutableMap.of(
+            HttpHeaders.ORIGIN, ALLOWED_ORIGIN,
+            REQUEST_METHOD, HttpMethod.PUT,
+            REQUEST_HEADERS, "authorization,content-type"
+        );
+        assertWithinBudget(fixture(HttpMethod.OPTIONS, requestHeaders, ImmutableMap.of(), resource), PREFLIGHT_BUDGET);
+    }
+
+    @Test
+    public void testCachedPreflight() throws IOException {
+        Map<String, String> requestHeaders = ImmutableMap.of(
+            HttpHeaders.ORIGIN, ALLOWED_ORIGIN,
+            REQUEST_METHOD, HttpMethod.PUT,
+            REQUEST_HEADERS, "authorization,content-type"
+        );
+        assertWithinBudget(
+            fixture(CorsPreflightCache.of(100), HttpMethod.OPTIONS, requestHeaders, ImmutableMap.of(), resource),
+            CACHED_PREFLIGHT_BUDGET
+        );
+    }
+
+    @Test
+    public void testExposeAll() throws IOException {
+        Map<String, String> responseHeaders = ImmutableMap.of(
+            HttpHeaders.CONTENT_TYPE, "application/json",
+            HttpHeaders.ETAG, "\"abc\"",
+            "X-Request-Id", "1234"
+        );
+        Map<String, String> requestHeaders = ImmutableMap.of(HttpHeaders.ORIGIN, ALLOWED_ORIGIN);
+        assertWithinBudget(fixture(HttpMethod.GET, requestHeaders, responseHeaders, exposeAllResource), EXPOSE_ALL_BUDGET);
+    }
+
+    private FilterFixture fixture(
+        String method, Map<String, String> requestHeaders, Map<String, String> responseHeaders, Resource resource
+    ) {
+        return fixture(CorsPreflightCache.disabled(), method, requestHeaders, responseHeaders, resource);
+    }
+
+    private FilterFixture fixture(
+        CorsPreflightCache preflightCache,
+        String method,
+        Map<String, String> requestHeaders,
+        Map<String, String> responseHeaders,
+        Resource resource
+    ) {
+        ResourceMethod matched = resource
+            .getResourceMethods()
+            .stream()
+            .filter(resourceMethod -> resourceMethod.getHttpMethod().equals(method))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+        return FilterFixture.of(registry, preflightCache, method, requestHeaders, responseHeaders, ImmutableList.of(), matched, resource);
+    }
+
+    /**
+     * Runs a fixture until the JIT has compiled the filter, and then checks the average number of bytes it allocates per request beyond
+     * what adding and removing its headers costs
+     */
+    private static void assertWithinBudget(FilterFixture fixture, long budget) throws IOException {
+        fixture.record();
+        for (int i = 0; i < WARMUP; i++) {
+            fixture.run();
+            fixture.replay();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before   = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            fixture.replay();
+        }
+        long headers = threads.getThreadAllocatedBytes(threadId) - before;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            fixture.run();
+        }
+        long perRequest = (threads.getThreadAllocatedBytes(threadId) - before - headers) / ITERATIONS;
+        assertThat(perRequest).as("bytes allocated per request beyond the header map").isLessThanOrEqualTo(budget);
+    }
+}
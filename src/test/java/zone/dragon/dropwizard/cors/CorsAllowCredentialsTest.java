@@ -1,5 +1,6 @@
 package zone.dragon.dropwizard.cors;
 
+import com.google.common.net.HttpHeaders;
 import io.dropwizard.Application;
 import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
@@ -31,7 +32,7 @@ public class CorsAllowCredentialsTest {
     public static class TestApp extends Application<Configuration> {
         @Override
         public void initialize(Bootstrap<Configuration> bootstrap) {
-            bootstrap.addBundle(new CorsBundle());
+            bootstrap.addBundle(new CorsBundle<>());
         }
 
         @Override
@@ -62,17 +63,30 @@ public class CorsAllowCredentialsTest {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "GET")
             .options()
             .getStringHeaders();
         assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isEqualTo("true");
     }
 
+    @Test
+    public void testPreflightAllowCredentialsWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isNull();
+    }
+
     @Test
     public void testPreflightNotAllowCredentials() {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "DELETE")
             .options()
             .getStringHeaders();
@@ -84,6 +98,7 @@ public class CorsAllowCredentialsTest {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .options()
             .getStringHeaders();
         assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isEqualTo(null);
@@ -91,13 +106,29 @@ public class CorsAllowCredentialsTest {
 
     @Test
     public void testRegularRequestAllowCredentials() {
-        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().get().getStringHeaders();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
         assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isEqualTo("true");
     }
 
+    @Test
+    public void testRegularRequestAllowCredentialsWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().get().getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isNull();
+    }
+
     @Test
     public void testRegularRequestNoAllowCredentials() {
-        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().delete().getStringHeaders();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .delete()
+            .getStringHeaders();
         assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isEqualTo(null);
     }
 
@@ -1,5 +1,6 @@
 package zone.dragon.dropwizard.cors;
 
+import com.google.common.net.HttpHeaders;
 import io.dropwizard.Application;
 import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
@@ -34,7 +35,7 @@ public class CorsAllowHeadersTest {
     public static class TestApp extends Application<Configuration> {
         @Override
         public void initialize(Bootstrap<Configuration> bootstrap) {
-            bootstrap.addBundle(new CorsBundle());
+            bootstrap.addBundle(new CorsBundle<>());
         }
 
         @Override
@@ -71,6 +72,7 @@ public class CorsAllowHeadersTest {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_HEADERS, "Test")
             .header(REQUEST_METHOD, "DELETE")
             .options()
@@ -83,6 +85,7 @@ public class CorsAllowHeadersTest {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "PUT")
             .header(REQUEST_HEADERS, "Test, Test2, Test3")
             .options()
@@ -90,15 +93,40 @@ public class CorsAllowHeadersTest {
         assertThat(stringHeaders.getFirst(ALLOW_HEADERS).split("\\s*,\\s*")).containsExactlyInAnyOrder("Test", "Test2");
     }
 
+    @Test
+    public void testExplicitAllowHeadersWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(REQUEST_METHOD, "PUT")
+            .header(REQUEST_HEADERS, "Test, Test2, Test3")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_HEADERS)).isNull();
+    }
+
     @Test
     public void testImplicitAllowHeaders() {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "GET")
             .header(REQUEST_HEADERS, "Test, Test2, Test3")
             .options()
             .getStringHeaders();
         assertThat(stringHeaders.getFirst(ALLOW_HEADERS)).isEqualTo("Test, Test2, Test3");
     }
+
+    @Test
+    public void testImplicitAllowHeadersWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(REQUEST_METHOD, "GET")
+            .header(REQUEST_HEADERS, "Test, Test2, Test3")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_HEADERS)).isNull();
+    }
 }
@@ -0,0 +1,104 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+
+public class CorsAllowOriginsTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins({"https://Example.com:443", "http://example.org"})
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+
+        @PUT
+        @CorsAllowOrigins
+        public String put() {
+            return "put";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testAllowedOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "http://example.org")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("http://example.org");
+    }
+
+    @Test
+    public void testNormalizedOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("https://example.com");
+    }
+
+    @Test
+    public void testDeniedOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.org")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo(null);
+    }
+
+    @Test
+    public void testWildcardOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.org")
+            .put(Entity.entity("\"test\"", MediaType.WILDCARD_TYPE))
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("*");
+    }
+}
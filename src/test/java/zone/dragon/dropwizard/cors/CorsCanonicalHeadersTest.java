@@ -0,0 +1,131 @@
+package zone.dragon.dropwizard.cors;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.hpack.HpackEncoder;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_METHODS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.MAX_AGE;
+
+public class CorsCanonicalHeadersTest {
+    private static final String ORIGIN = "https://app.example.com";
+
+    /**
+     * Requested method and headers of pre-flight requests from a mix of browsers and client libraries, which differ in the order, case and
+     * spacing of the same header names
+     */
+    private static final String[][] REQUESTS = {
+        {"GET", "authorization,content-type"},
+        {"GET", "Content-Type, Authorization"},
+        {"GET", "authorization,x-trace-id"},
+        {"GET", "content-type,x-requested-with"},
+        {"PUT", "authorization,content-type"},
+        {"PUT", "Content-Type, Authorization"},
+        {"PUT", "content-type,  authorization"},
+        {"PUT", "authorization,content-type,x-trace-id"},
+        {"PUT", "X-Trace-Id, Content-Type, Authorization"}
+    };
+
+    @Path("someUri")
+    @CorsAllowOrigins(ORIGIN)
+    @CorsMaxAge(600)
+    public static class TestResource {
+        @GET
+        @CorsAllowHeaders({"X-Requested-With", "Content-Type", "Authorization"})
+        public String get() {
+            return "get";
+        }
+
+        @PUT
+        @CorsAllowHeaders
+        public String put() {
+            return "put";
+        }
+    }
+
+    private final Resource resource = Resource.from(TestResource.class);
+
+    private CorsPreflightPolicy compile(boolean canonical) {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setCanonicalHeaders(canonical);
+        CorsPolicyRegistry registry = new CorsPolicyRegistry(configuration);
+        registry.compile(new ResourceModel.Builder(false).addResource(resource).build());
+        return registry.getPreflightPolicy(Collections.emptyList(), resource);
+    }
+
+    private static CorsPreflightResponse preflight(CorsPreflightPolicy preflightPolicy, String method, String requestHeaders) {
+        return CorsPreflightResponse.of(preflightPolicy, preflightPolicy.getPolicy(method), ORIGIN, requestHeaders);
+    }
+
+    /**
+     * Encodes the CORS headers of the responses to several rounds of {@link #REQUESTS} over a single HTTP/2 connection
+     *
+     * @return Total number of HPACK encoded bytes
+     */
+    private int encodedBytes(boolean canonical) throws Exception {
+        CorsPreflightPolicy preflightPolicy = compile(canonical);
+        HpackEncoder        encoder         = new HpackEncoder();
+        ByteBuffer          buffer          = ByteBuffer.allocate(4096);
+        int                 total           = 0;
+        for (int round = 0; round < 10; round++) {
+            for (String[] request : REQUESTS) {
+                CorsPreflightResponse response = preflight(preflightPolicy, request[0], request[1]);
+                HttpFields            fields   = new HttpFields();
+                fields.add(ALLOW_METHODS, response.getAllowMethodsValue());
+                fields.add(ALLOW_ORIGIN, response.getAllowOriginValue());
+                fields.add(MAX_AGE, response.getMaxAgeValue());
+                fields.add(ALLOW_HEADERS, response.getAllowHeadersValue());
+                buffer.clear();
+                encoder.encode(buffer, new MetaData.Response(HttpVersion.HTTP_2, 204, fields));
+                total += buffer.position();
+            }
+        }
+        return total;
+    }
+
+    @Test
+    public void testFewerEncodedBytes() throws Exception {
+        assertThat(encodedBytes(true)).isLessThan(encodedBytes(false));
+    }
+
+    @Test
+    public void testSomeHeadersAllowed() {
+        CorsPreflightPolicy preflightPolicy = compile(true);
+        String              partial         = preflight(preflightPolicy, "GET", "authorization,x-trace-id").getAllowHeadersValue();
+        String              full            = preflight(preflightPolicy, "GET", "Content-Type, Authorization").getAllowHeadersValue();
+        assertThat(partial).isEqualTo("authorization, content-type, x-requested-with");
+        assertThat(partial).isSameAs(full);
+    }
+
+    @Test
+    public void testAnyHeaderAllowed() {
+        CorsPreflightPolicy preflightPolicy = compile(true);
+        String              first           = preflight(preflightPolicy, "PUT", "Content-Type,  Authorization").getAllowHeadersValue();
+        String              second          = preflight(preflightPolicy, "PUT", "Content-Type,  Authorization").getAllowHeadersValue();
+        assertThat(first).isEqualTo("authorization, content-type");
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void testDefaultModeEchoesRequest() {
+        CorsPreflightPolicy preflightPolicy = compile(false);
+        assertThat(preflight(preflightPolicy, "PUT", "Content-Type, Authorization").getAllowHeadersValue())
+            .isEqualTo("Content-Type, Authorization");
+    }
+}
@@ -0,0 +1,163 @@
+package zone.dragon.dropwizard.cors;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import lombok.Getter;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceModel;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import java.io.File;
+import java.util.Collections;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+
+public class CorsConfigurationTest {
+    private static final String BASE_CONFIG = "defaults:\n"
+                                              + "  allowOrigins: [\"https://example.com\"]\n"
+                                              + "paths:\n"
+                                              + "  /override:\n"
+                                              + "    allowOrigins: [\"https://example.org\"]\n";
+
+    private static final File RELOAD_FILE = writeReloadFile(BASE_CONFIG);
+
+    @ClassRule
+    public static final DropwizardAppRule<TestConfiguration> APP_RULE = new DropwizardAppRule<>(TestApp.class, createConfiguration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    private static File writeReloadFile(String contents) {
+        try {
+            File file = RELOAD_FILE == null ? File.createTempFile("cors", ".yml") : RELOAD_FILE;
+            file.deleteOnExit();
+            Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static TestConfiguration createConfiguration() {
+        TestConfiguration configuration = new TestConfiguration();
+        configuration.getCors().setReloadFile(RELOAD_FILE.getAbsolutePath());
+        return configuration;
+    }
+
+    @Getter
+    public static class TestConfiguration extends Configuration {
+        @JsonProperty
+        private CorsConfiguration cors = new CorsConfiguration();
+    }
+
+    public static class TestApp extends Application<TestConfiguration> {
+        @Override
+        public void initialize(Bootstrap<TestConfiguration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>(TestConfiguration::getCors));
+        }
+
+        @Override
+        public void run(TestConfiguration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("/")
+    public static class TestResource {
+        @GET
+        @Path("unannotated")
+        public String unannotated() {
+            return "unannotated";
+        }
+
+        @GET
+        @Path("override")
+        @CorsAllowOrigins("https://example.com")
+        public String override() {
+            return "override";
+        }
+
+        @GET
+        @Path("reloaded")
+        @CorsAllowOrigins("https://example.com")
+        public String reloaded() {
+            return "reloaded";
+        }
+    }
+
+    @Path("credentials")
+    @CorsAllowOrigins("https://example.com")
+    @CorsAllowCredentials
+    public static class CredentialsResource {
+        @GET
+        public String get() {
+            return "credentials";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    protected WebTarget admin = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getAdminPort()));
+
+    private String getAllowOrigin(String path, String origin) {
+        return client.path(path).request().header(HttpHeaders.ORIGIN, origin).get().getStringHeaders().getFirst(ALLOW_ORIGIN);
+    }
+
+    @Test
+    public void testDefaults() {
+        assertThat(getAllowOrigin("unannotated", "https://example.com")).isEqualTo("https://example.com");
+        assertThat(getAllowOrigin("unannotated", "https://example.org")).isNull();
+    }
+
+    @Test
+    public void testPathOverride() {
+        assertThat(getAllowOrigin("override", "https://example.org")).isEqualTo("https://example.org");
+        assertThat(getAllowOrigin("override", "https://example.com")).isNull();
+    }
+
+    @Test
+    public void testReload() {
+        assertThat(getAllowOrigin("reloaded", "https://example.com")).isEqualTo("https://example.com");
+        writeReloadFile(BASE_CONFIG + "  /reloaded:\n    allowOrigins: [\"https://example.net\"]\n");
+        try {
+            assertThat(admin.path("tasks/cors-reload").request().post(Entity.text("")).getStatus()).isEqualTo(200);
+            assertThat(getAllowOrigin("reloaded", "https://example.net")).isEqualTo("https://example.net");
+            assertThat(getAllowOrigin("reloaded", "https://example.com")).isNull();
+        } finally {
+            writeReloadFile(BASE_CONFIG);
+            admin.path("tasks/cors-reload").request().post(Entity.text("")).close();
+        }
+    }
+
+    @Test
+    public void testPathOverrideDisallowsCredentials() {
+        CorsPolicyConfiguration policy = new CorsPolicyConfiguration();
+        policy.setAllowCredentials(false);
+        CorsConfiguration configuration = new CorsConfiguration();
+        CorsPolicyRegistry registry = new CorsPolicyRegistry(configuration);
+        Resource           resource = Resource.from(CredentialsResource.class);
+        registry.compile(new ResourceModel.Builder(false).addResource(resource).build());
+        assertThat(registry.getPolicy(Collections.emptyList(), resource.getResourceMethods().get(0)).isAllowCredentials()).isTrue();
+        configuration.getPaths().put("/credentials", policy);
+        registry.reload(configuration);
+        assertThat(registry.getPolicy(Collections.emptyList(), resource.getResourceMethods().get(0)).isAllowCredentials()).isFalse();
+    }
+}
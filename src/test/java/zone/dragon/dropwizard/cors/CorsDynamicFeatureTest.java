@@ -0,0 +1,170 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_METHODS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsDynamicFeatureTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(AnnotatedResource.class);
+            environment.jersey().register(PlainResource.class);
+        }
+    }
+
+    @Path("annotated")
+    @CorsAllowOrigins
+    public static class AnnotatedResource {
+        @GET
+        public String get() {
+            return "annotated";
+        }
+
+        @Path("nested")
+        public NestedResource getNested() {
+            return new NestedResource();
+        }
+    }
+
+    @Path("nested")
+    public static class NestedResource {
+        @GET
+        public String get() {
+            return "nested";
+        }
+    }
+
+    @Path("plain")
+    public static class PlainResource {
+        @GET
+        public String get() {
+            return "plain";
+        }
+
+        @Path("child")
+        public ChildResource getChild() {
+            return new ChildResource();
+        }
+    }
+
+    public static class ChildResource {
+        @GET
+        public String get() {
+            return "child";
+        }
+    }
+
+    /**
+     * Not registered with the application, since it would bind the filter to every method
+     */
+    @Path("dynamic")
+    @CorsAllowOrigins
+    public static class DynamicResource {
+        @Path("any")
+        public Object getAny() {
+            return new ChildResource();
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testAppliesTo() throws NoSuchMethodException {
+        CorsLocatorTargets targets = new CorsLocatorTargets();
+        assertThat(CorsDynamicFeature.appliesTo(AnnotatedResource.class, AnnotatedResource.class.getMethod("get"), targets)).isTrue();
+        assertThat(CorsDynamicFeature.appliesTo(PlainResource.class, PlainResource.class.getMethod("get"), targets)).isFalse();
+        // Only returned by a locator without a policy
+        assertThat(CorsDynamicFeature.appliesTo(ChildResource.class, ChildResource.class.getMethod("get"), targets)).isFalse();
+        assertThat(CorsDynamicFeature.appliesTo(NestedResource.class, NestedResource.class.getMethod("get"), targets)).isFalse();
+        // Returned by a locator on a CORS enabled resource
+        targets.processResourceModel(
+            new ResourceModel.Builder(false).addResource(Resource.from(AnnotatedResource.class)).build(),
+            null
+        );
+        assertThat(CorsDynamicFeature.appliesTo(NestedResource.class, NestedResource.class.getMethod("get"), targets)).isTrue();
+        assertThat(CorsDynamicFeature.appliesTo(PlainResource.class, PlainResource.class.getMethod("get"), targets)).isFalse();
+    }
+
+    @Test
+    public void testAppliesToAnyLocatorTarget() throws NoSuchMethodException {
+        CorsLocatorTargets targets = new CorsLocatorTargets();
+        targets.processResourceModel(new ResourceModel.Builder(false).addResource(Resource.from(DynamicResource.class)).build(), null);
+        // The locator's return type doesn't name its sub-resource class, so any class may be returned
+        assertThat(CorsDynamicFeature.appliesTo(ChildResource.class, ChildResource.class.getMethod("get"), targets)).isTrue();
+        assertThat(CorsDynamicFeature.appliesTo(PlainResource.class, PlainResource.class.getMethod("get"), targets)).isTrue();
+    }
+
+    @Test
+    public void testPathAnnotatedSubResource() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("annotated/nested")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("*");
+    }
+
+    @Test
+    public void testAnnotatedResource() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("annotated")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("*");
+    }
+
+    @Test
+    public void testAnnotatedResourcePreflight() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("annotated")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("*");
+        assertThat(stringHeaders.getFirst(ALLOW_METHODS)).isEqualTo("GET");
+    }
+
+    @Test
+    public void testPlainResourceNotFiltered() {
+        MultivaluedMap<String, String> stringHeaders = client.path("plain").request().get().getStringHeaders();
+        // A globally bound filter would add Vary: Origin, since the application has CORS enabled resources
+        assertThat(stringHeaders.getFirst(HttpHeaders.VARY)).isNull();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isNull();
+    }
+}
@@ -1,5 +1,6 @@
 package zone.dragon.dropwizard.cors;
 
+import com.google.common.net.HttpHeaders;
 import io.dropwizard.Application;
 import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
@@ -12,6 +13,7 @@ import zone.dragon.dropwizard.cors.annotations.CorsExposeHeaders;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.client.Entity;
@@ -34,7 +36,7 @@ public class CorsExposeHeadersTest {
     public static class TestApp extends Application<Configuration> {
         @Override
         public void initialize(Bootstrap<Configuration> bootstrap) {
-            bootstrap.addBundle(new CorsBundle());
+            bootstrap.addBundle(new CorsBundle<>());
         }
 
         @Override
@@ -62,26 +64,86 @@ public class CorsExposeHeadersTest {
         public Response testImplicitExposeHeaders() {
             return Response.ok("hello").header("Header-1", "value1").build();
         }
+
+        @POST
+        @CorsExposeHeaders
+        public Response testImplicitExposeHeadersIgnoreCase() {
+            return Response.ok("hello").header("content-type", "text/plain").header("cache-control", "no-cache").build();
+        }
     }
 
     protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
 
     @Test
     public void testDefaultExposeHeaders() {
-        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().delete().getStringHeaders();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .delete()
+            .getStringHeaders();
         assertThat(stringHeaders.getFirst(EXPOSE_HEADERS)).isEqualTo(null);
     }
 
     @Test
     public void testExplicitExposeHeaders() {
-        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().put(Entity.entity("\"test\"", MediaType.WILDCARD_TYPE))
-                                                             .getStringHeaders();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .put(Entity.entity("\"test\"", MediaType.WILDCARD_TYPE))
+            .getStringHeaders();
         assertThat(stringHeaders.getFirst(EXPOSE_HEADERS).split("\\s*,\\s*")).containsExactlyInAnyOrder("Test", "Test2");
     }
 
+    @Test
+    public void testExplicitExposeHeadersWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .put(Entity.entity("\"test\"", MediaType.WILDCARD_TYPE))
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(EXPOSE_HEADERS)).isNull();
+    }
+
     @Test
     public void testImplicitExposeHeaders() {
-        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().get().getStringHeaders();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
         assertThat(stringHeaders.getFirst(EXPOSE_HEADERS)).isEqualTo("Header-1");
     }
+
+    @Test
+    public void testImplicitExposeHeadersWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().get().getStringHeaders();
+        assertThat(stringHeaders.getFirst(EXPOSE_HEADERS)).isNull();
+    }
+
+    @Test
+    public void testImplicitExposeHeadersIgnoreCase() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .post(Entity.entity("\"test\"", MediaType.WILDCARD_TYPE))
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(EXPOSE_HEADERS)).isNull();
+    }
+
+    @Test
+    public void testImplicitExposeHeadersRepeated() {
+        for (int i = 0; i < 3; i++) {
+            MultivaluedMap<String, String> stringHeaders = client
+                .path("someUri")
+                .request()
+                .header(HttpHeaders.ORIGIN, "https://example.com")
+                .get()
+                .getStringHeaders();
+            assertThat(stringHeaders.getFirst(EXPOSE_HEADERS)).isEqualTo("Header-1");
+        }
+    }
 }
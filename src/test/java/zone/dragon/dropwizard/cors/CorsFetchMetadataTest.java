@@ -0,0 +1,151 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_MODE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_SITE;
+
+public class CorsFetchMetadataTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+            environment.jersey().register(PlainResource.class);
+            environment.jersey().register(WildcardResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins("https://example.com")
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    @Path("plain")
+    public static class PlainResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    @Path("wildcard")
+    @CorsAllowOrigins
+    public static class WildcardResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testNoOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().get().getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isNull();
+        assertThat(stringHeaders.getFirst(HttpHeaders.VARY)).isEqualTo("Origin");
+    }
+
+    @Test
+    public void testSameOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(SEC_FETCH_SITE, "same-origin")
+            .header(SEC_FETCH_MODE, "cors")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isNull();
+        assertThat(stringHeaders.getFirst(HttpHeaders.VARY)).isEqualTo("Origin, Sec-Fetch-Mode, Sec-Fetch-Site");
+    }
+
+    @Test
+    public void testNavigation() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(SEC_FETCH_SITE, "cross-site")
+            .header(SEC_FETCH_MODE, "navigate")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isNull();
+        assertThat(stringHeaders.getFirst(HttpHeaders.VARY)).isEqualTo("Origin, Sec-Fetch-Mode, Sec-Fetch-Site");
+    }
+
+    @Test
+    public void testPlainResource() {
+        // The application has CORS enabled resources, but this one can't answer with CORS headers
+        assertThat(client.path("plain").request().get().getStringHeaders().getFirst(HttpHeaders.VARY)).isNull();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("plain")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(SEC_FETCH_SITE, "same-origin")
+            .header(SEC_FETCH_MODE, "cors")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(HttpHeaders.VARY)).isNull();
+    }
+
+    @Test
+    public void testWildcardResource() {
+        // Every origin gets the same CORS headers, so caches needn't store a copy per origin
+        assertThat(client.path("wildcard").request().get().getStringHeaders().getFirst(HttpHeaders.VARY)).isNull();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("wildcard")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(SEC_FETCH_SITE, "cross-site")
+            .header(SEC_FETCH_MODE, "navigate")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isNull();
+        assertThat(stringHeaders.getFirst(HttpHeaders.VARY)).isNull();
+    }
+
+    @Test
+    public void testCrossSite() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(SEC_FETCH_SITE, "cross-site")
+            .header(SEC_FETCH_MODE, "cors")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("https://example.com");
+    }
+}
@@ -0,0 +1,153 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsFlightRecorderTest {
+    private static final String SIMPLE_REQUEST = "zone.dragon.dropwizard.cors.SimpleRequest";
+    private static final String PREFLIGHT      = "zone.dragon.dropwizard.cors.Preflight";
+
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            CorsPolicyConfiguration policy = new CorsPolicyConfiguration();
+            policy.setAllowOrigins(ImmutableList.of("https://config.example.com"));
+            CorsConfiguration cors = new CorsConfiguration();
+            cors.getPaths().put("/configured", policy);
+            bootstrap.addBundle(new CorsBundle<>(configuration -> cors));
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(AnnotatedResource.class);
+            environment.jersey().register(ConfiguredResource.class);
+        }
+    }
+
+    @Path("annotated")
+    @CorsAllowOrigins("https://class.example.com")
+    public static class AnnotatedResource {
+        @GET
+        @Path("method")
+        @CorsAllowOrigins("https://method.example.com")
+        public String byMethod() {
+            return "method";
+        }
+
+        @GET
+        @Path("class")
+        public String byClass() {
+            return "class";
+        }
+
+        @Path("locator")
+        public ChildResource getChild() {
+            return new ChildResource();
+        }
+    }
+
+    public static class ChildResource {
+        @GET
+        public String get() {
+            return "child";
+        }
+    }
+
+    @Path("configured")
+    public static class ConfiguredResource {
+        @GET
+        public String get() {
+            return "configured";
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    private void get(String path, String origin) {
+        client.path(path).request().header(HttpHeaders.ORIGIN, origin).get().close();
+    }
+
+    private static String resourceMethod(Class<?> type, String method) {
+        return type.getName() + '#' + method;
+    }
+
+    /**
+     * Renders the fields of the recorded events of a type that identify a request and its outcome
+     */
+    private static List<String> describe(List<RecordedEvent> events, String type, String target) {
+        return events
+            .stream()
+            .filter(event -> event.getEventType().getName().equals(type))
+            .map(event -> event.getString(target)
+                          + ' ' + event.getString("origin")
+                          + ' ' + event.getBoolean("allowed")
+                          + ' ' + event.getString("policyLevel"))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        File file = folder.newFile("cors.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(SIMPLE_REQUEST);
+            recording.enable(PREFLIGHT);
+            recording.start();
+            get("annotated/method", "https://method.example.com");
+            get("annotated/class", "https://class.example.com");
+            get("annotated/class", "https://evil.example.com");
+            get("annotated/locator", "https://class.example.com");
+            get("configured", "https://config.example.com");
+            client
+                .path("annotated/method")
+                .request()
+                .header(HttpHeaders.ORIGIN, "https://method.example.com")
+                .header(REQUEST_METHOD, "GET")
+                .options()
+                .close();
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+        assertThat(describe(events, SIMPLE_REQUEST, "resourceMethod")).containsExactlyInAnyOrder(
+            resourceMethod(AnnotatedResource.class, "byMethod") + " https://method.example.com true METHOD",
+            resourceMethod(AnnotatedResource.class, "byClass") + " https://class.example.com true CLASS",
+            resourceMethod(AnnotatedResource.class, "byClass") + " https://evil.example.com false CLASS",
+            resourceMethod(ChildResource.class, "get") + " https://class.example.com true LOCATOR",
+            resourceMethod(ConfiguredResource.class, "get") + " https://config.example.com true CONFIGURATION"
+        );
+        assertThat(describe(events, PREFLIGHT, "requestMethod")).containsExactly("GET https://method.example.com true METHOD");
+    }
+}
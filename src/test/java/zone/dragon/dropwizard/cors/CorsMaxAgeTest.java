@@ -1,5 +1,6 @@
 package zone.dragon.dropwizard.cors;
 
+import com.google.common.net.HttpHeaders;
 import io.dropwizard.Application;
 import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
@@ -33,7 +34,7 @@ public class CorsMaxAgeTest {
     public static class TestApp extends Application<Configuration> {
         @Override
         public void initialize(Bootstrap<Configuration> bootstrap) {
-            bootstrap.addBundle(new CorsBundle());
+            bootstrap.addBundle(new CorsBundle<>());
         }
 
         @Override
@@ -70,17 +71,30 @@ public class CorsMaxAgeTest {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "GET")
             .options()
             .getStringHeaders();
         assertThat(stringHeaders.getFirst(MAX_AGE)).isEqualTo("-1");
     }
 
+    @Test
+    public void testDisabledMaxAgeWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(MAX_AGE)).isNull();
+    }
+
     @Test
     public void testNonPreflightOptionsRequest() {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .options()
             .getStringHeaders();
         assertThat(stringHeaders.getFirst(MAX_AGE)).isEqualTo(null);
@@ -88,7 +102,12 @@ public class CorsMaxAgeTest {
 
     @Test
     public void testRegularRequest() {
-        MultivaluedMap<String, String> stringHeaders = client.path("someUri").request().get().getStringHeaders();
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
         assertThat(stringHeaders.getFirst(MAX_AGE)).isEqualTo(null);
     }
 
@@ -97,17 +116,30 @@ public class CorsMaxAgeTest {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "PUT")
             .options()
             .getStringHeaders();
         assertThat(stringHeaders.getFirst(MAX_AGE)).isEqualTo("12356423523");
     }
 
+    @Test
+    public void testMaxAgeWithoutOrigin() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri")
+            .request()
+            .header(REQUEST_METHOD, "PUT")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(MAX_AGE)).isNull();
+    }
+
     @Test
     public void testNonexistentMaxAge() {
         MultivaluedMap<String, String> stringHeaders = client
             .path("someUri")
             .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
             .header(REQUEST_METHOD, "DELETE")
             .options()
             .getStringHeaders();
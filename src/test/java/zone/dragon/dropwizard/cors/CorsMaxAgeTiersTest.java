@@ -0,0 +1,114 @@
+package zone.dragon.dropwizard.cors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CorsMaxAgeTiersTest {
+    @Path("tiered")
+    @CorsAllowOrigins
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+
+        @PUT
+        @CorsMaxAge(60)
+        public String put(String body) {
+            return body;
+        }
+    }
+
+    private static CorsMaxAgeTierConfiguration tier(long maxAge, String... origins) {
+        CorsMaxAgeTierConfiguration tier = new CorsMaxAgeTierConfiguration();
+        tier.setOrigins(ImmutableList.copyOf(origins));
+        tier.setMaxAge(maxAge);
+        return tier;
+    }
+
+    private static ResourceMethod method(String httpMethod) {
+        return Resource
+            .from(TestResource.class)
+            .getResourceMethods()
+            .stream()
+            .filter(method -> httpMethod.equals(method.getHttpMethod()))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * Compiles the resource and looks up the effective policy of one of its methods
+     */
+    private static CorsPolicy compile(CorsConfiguration configuration, Long defaultMaxAge, String httpMethod) {
+        CorsPolicyRegistry registry = new CorsPolicyRegistry(configuration, 0, defaultMaxAge);
+        registry.compile(new ResourceModel.Builder(false).addResource(Resource.from(TestResource.class)).build());
+        return registry.getPolicy(ImmutableList.of(), method(httpMethod));
+    }
+
+    @Test
+    public void testTiers() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setMaxAgeTiers(ImmutableList.of(tier(86400, "https://app.example.com", "https://*.example.com"), tier(600, "*")));
+        CorsPolicy get = compile(configuration, 30L, "GET");
+        assertThat(get.getMaxAgeValue("https://app.example.com")).isEqualTo("86400");
+        assertThat(get.getMaxAgeValue("https://admin.example.com")).isEqualTo("86400");
+        assertThat(get.getMaxAgeValue("https://partner.example.org")).isEqualTo("600");
+        // Annotations take precedence over the tiers
+        CorsPolicy put = compile(configuration, 30L, "PUT");
+        assertThat(put.getMaxAgeValue("https://app.example.com")).isEqualTo("60");
+    }
+
+    @Test
+    public void testDefaultMaxAge() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setMaxAgeTiers(ImmutableList.of(tier(86400, "https://app.example.com")));
+        CorsPolicy get = compile(configuration, 30L, "GET");
+        assertThat(get.getMaxAgeValue("https://app.example.com")).isEqualTo("86400");
+        assertThat(get.getMaxAgeValue("https://partner.example.org")).isEqualTo("30");
+        // The configured defaults take precedence over the bundle's default
+        configuration.getDefaults().setMaxAge(300L);
+        assertThat(compile(configuration, 30L, "GET").getMaxAgeValue("https://partner.example.org")).isEqualTo("300");
+        assertThat(compile(new CorsConfiguration(), 30L, "GET").getMaxAgeValue("https://partner.example.org")).isEqualTo("30");
+        assertThat(compile(new CorsConfiguration(), null, "GET").getMaxAgeValue("https://partner.example.org")).isNull();
+    }
+
+    @Test
+    public void testOriginMeters() {
+        MetricRegistry registry = new MetricRegistry();
+        CorsMetrics    metrics  = CorsMetrics.register(registry, 2);
+        metrics.preflightOrigin("https://app.example.com", true);
+        metrics.preflightOrigin("HTTPS://App.Example.com:443", true);
+        metrics.preflightOrigin("https://partner.example.org", true);
+        metrics.preflightOrigin("https://other.example.net", true);
+        assertThat(registry.meter(name(CorsResponseFilter.class, "preflight", "origins", "https___app_example_com")).getCount())
+            .isEqualTo(2);
+        assertThat(registry.meter(name(CorsResponseFilter.class, "preflight", "origins", "https___partner_example_org")).getCount())
+            .isEqualTo(1);
+        // Origins beyond the limit share a meter
+        assertThat(registry.meter(name(CorsResponseFilter.class, "preflight", "origins", "other")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnlistedOriginsShareMeter() {
+        MetricRegistry registry = new MetricRegistry();
+        CorsMetrics    metrics  = CorsMetrics.register(registry, 2);
+        for (int i = 0; i < 10; i++) {
+            metrics.preflightOrigin("https://" + i + ".example.com", false);
+        }
+        assertThat(registry.getMeters().keySet()).noneMatch(meterName -> meterName.contains("example_com"));
+        assertThat(registry.meter(name(CorsResponseFilter.class, "preflight", "origins", "other")).getCount()).isEqualTo(10);
+    }
+}
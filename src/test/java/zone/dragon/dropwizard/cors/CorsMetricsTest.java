@@ -0,0 +1,79 @@
+package zone.dragon.dropwizard.cors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsMetricsTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins("https://example.com")
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testSimpleRequests() {
+        MetricRegistry metrics = APP_RULE.getEnvironment().metrics();
+        long           allowed = metrics.meter(name(CorsResponseFilter.class, "simple", "allowed")).getCount();
+        long           denied  = metrics.meter(name(CorsResponseFilter.class, "simple", "denied")).getCount();
+        client.path("someUri").request().header(HttpHeaders.ORIGIN, "https://example.com").get().close();
+        client.path("someUri").request().header(HttpHeaders.ORIGIN, "https://example.org").get().close();
+        assertThat(metrics.meter(name(CorsResponseFilter.class, "simple", "allowed")).getCount()).isEqualTo(allowed + 1);
+        assertThat(metrics.meter(name(CorsResponseFilter.class, "simple", "denied")).getCount()).isEqualTo(denied + 1);
+    }
+
+    @Test
+    public void testPreflightRequests() {
+        MetricRegistry metrics = APP_RULE.getEnvironment().metrics();
+        long           allowed = metrics.meter(name(CorsResponseFilter.class, "preflight", "allowed")).getCount();
+        long           denied  = metrics.meter(name(CorsResponseFilter.class, "preflight", "denied")).getCount();
+        long           origin  = metrics.meter(name(CorsResponseFilter.class, "preflight", "origins", "https___example_com")).getCount();
+        client.path("someUri").request().header(HttpHeaders.ORIGIN, "https://example.com").header(REQUEST_METHOD, "GET").options().close();
+        client.path("someUri").request().header(HttpHeaders.ORIGIN, "https://example.com").header(REQUEST_METHOD, "PUT").options().close();
+        assertThat(metrics.meter(name(CorsResponseFilter.class, "preflight", "allowed")).getCount()).isEqualTo(allowed + 1);
+        assertThat(metrics.meter(name(CorsResponseFilter.class, "preflight", "denied")).getCount()).isEqualTo(denied + 1);
+        assertThat(metrics.timer(name(CorsResponseFilter.class, "preflight")).getCount()).isGreaterThanOrEqualTo(2);
+        // Only allowed pre-flight requests are metered per origin
+        assertThat(metrics.meter(name(CorsResponseFilter.class, "preflight", "origins", "https___example_com")).getCount())
+            .isEqualTo(origin + 1);
+    }
+}
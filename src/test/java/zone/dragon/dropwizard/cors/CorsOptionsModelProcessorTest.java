@@ -0,0 +1,142 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_METHODS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsOptionsModelProcessorTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+            environment.jersey().register(PlainResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+
+        @Path("child")
+        public ChildResource getChild() {
+            return new ChildResource();
+        }
+    }
+
+    public static class ChildResource {
+        @PUT
+        public String put() {
+            return "put";
+        }
+    }
+
+    @Path("plain")
+    public static class PlainResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testLeanPreflight() {
+        Response response = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(204);
+        assertThat(response.hasEntity()).isFalse();
+        assertThat(response.getHeaderString(HttpHeaders.ALLOW)).isEqualTo("GET, HEAD, OPTIONS");
+        assertThat(response.getHeaderString(ALLOW_METHODS)).isEqualTo("GET");
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isEqualTo("*");
+    }
+
+    @Test
+    public void testLeanPreflightThroughLocator() {
+        Response response = client
+            .path("someUri/child")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "PUT")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(204);
+        assertThat(response.getHeaderString(ALLOW_METHODS)).isEqualTo("PUT");
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isEqualTo("*");
+    }
+
+    @Test
+    public void testDefaultOptionsForPlainResource() {
+        Response response = client.path("plain").request().options();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testLeanPreflightForConfiguredPath() {
+        CorsPolicyConfiguration policy = new CorsPolicyConfiguration();
+        policy.setAllowOrigins(ImmutableList.of("https://example.com"));
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.getPaths().put("/plain", policy);
+        ResourceModel model = new ResourceModel.Builder(false).addResource(Resource.from(PlainResource.class)).build();
+        assertThat(hasLeanOptions(new CorsOptionsModelProcessor().processResourceModel(model, null))).isFalse();
+        assertThat(hasLeanOptions(new CorsOptionsModelProcessor(configuration).processResourceModel(model, null))).isTrue();
+    }
+
+    @Test
+    public void testLeanPreflightWhenReloadable() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setReloadFile("cors.yml");
+        ResourceModel model = new ResourceModel.Builder(false).addResource(Resource.from(PlainResource.class)).build();
+        // A reload may enable CORS for the resource after the model is built
+        assertThat(hasLeanOptions(new CorsOptionsModelProcessor(configuration).processResourceModel(model, null))).isTrue();
+    }
+
+    private static boolean hasLeanOptions(ResourceModel model) {
+        for (ResourceMethod method : model.getResources().get(0).getResourceMethods()) {
+            if ("OPTIONS".equals(method.getHttpMethod()) && method.isExtended()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
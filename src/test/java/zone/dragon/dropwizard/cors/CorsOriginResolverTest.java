@@ -0,0 +1,103 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_CREDENTIALS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.MAX_AGE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsOriginResolverTest {
+    private static final InMemoryOriginResolver RESOLVER = new InMemoryOriginResolver()
+        .allow("https://tenant.example.org")
+        .allow("https://Trusted.example.org:443", OriginDecision.allow(true, 3600L));
+
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>().addOriginResolver(RESOLVER));
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins(value = "https://example.com", resolver = InMemoryOriginResolver.class)
+    @CorsMaxAge(60)
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    private MultivaluedMap<String, String> get(String origin) {
+        return client.path("someUri").request().header(HttpHeaders.ORIGIN, origin).get().getStringHeaders();
+    }
+
+    @Test
+    public void testListedOrigin() {
+        assertThat(get("https://example.com").getFirst(ALLOW_ORIGIN)).isEqualTo("https://example.com");
+    }
+
+    @Test
+    public void testResolvedOrigin() {
+        MultivaluedMap<String, String> headers = get("https://tenant.example.org");
+        assertThat(headers.getFirst(ALLOW_ORIGIN)).isEqualTo("https://tenant.example.org");
+        assertThat(headers.getFirst(ALLOW_CREDENTIALS)).isNull();
+        assertThat(headers.getFirst(HttpHeaders.VARY)).isEqualTo("Origin");
+    }
+
+    @Test
+    public void testResolvedOverrides() {
+        assertThat(get("https://trusted.example.org").getFirst(ALLOW_CREDENTIALS)).isEqualTo("true");
+        MultivaluedMap<String, String> preflight = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://trusted.example.org")
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(preflight.getFirst(ALLOW_ORIGIN)).isEqualTo("https://trusted.example.org");
+        assertThat(preflight.getFirst(MAX_AGE)).isEqualTo("3600");
+    }
+
+    @Test
+    public void testDeniedOrigin() {
+        assertThat(get("https://other.example.org").getFirst(ALLOW_ORIGIN)).isNull();
+    }
+
+    @Test
+    public void testDuplicateResolverClassRejected() {
+        CorsBundle<Configuration> bundle = new CorsBundle<>().addOriginResolver(new InMemoryOriginResolver());
+        assertThatThrownBy(() -> bundle.addOriginResolver(new InMemoryOriginResolver())).isInstanceOf(IllegalArgumentException.class);
+    }
+}
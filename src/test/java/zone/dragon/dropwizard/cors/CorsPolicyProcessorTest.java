@@ -0,0 +1,208 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeNotNull;
+
+public class CorsPolicyProcessorTest {
+    private static final String RESOURCE = String.join(
+        "\n",
+        "package example;",
+        "import javax.ws.rs.*;",
+        "import zone.dragon.dropwizard.cors.annotations.*;",
+        "@Path(\"example\")",
+        "@CorsAllowOrigins(\"https://app.example.com\")",
+        "@CorsMaxAge(600)",
+        "public class ExampleResource {",
+        "    @GET",
+        "    @CorsExposeHeaders({\"X-Request-Id\"})",
+        "    public String get(@QueryParam(\"ids\") String[] ids, @QueryParam(\"limit\") int limit) { return \"get\"; }",
+        "    @PUT",
+        "    @CorsAllowHeaders",
+        "    @CorsAllowCredentials",
+        "    public String put(String body) { return \"put\"; }",
+        "    @DELETE",
+        "    public String delete() { return \"delete\"; }",
+        "    public static class Child {",
+        "        @GET",
+        "        @CorsAllowOrigins",
+        "        public String get() { return \"child\"; }",
+        "    }",
+        "}"
+    );
+
+    private static final String CREDENTIALS_MESSAGE
+        = "@CorsAllowOrigins(\"*\") with @CorsAllowCredentials sends Access-Control-Allow-Origin: *, which browsers reject for "
+          + "credentialed requests; List the trusted origins instead";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    /**
+     * Compiles sources with the processor
+     *
+     * @return {@code true} if compilation succeeded
+     */
+    private boolean compile(File output, String name, String source, String... options) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+        URI            uri  = URI.create("string:///" + name.replace('.', '/') + ".java");
+        JavaFileObject file = new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        List<String> arguments = ImmutableList.<String>builder()
+            .add("-classpath", System.getProperty("java.class.path"))
+            .add("-d", output.getPath())
+            .add("-s", output.getPath())
+            .add(options)
+            .build();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, arguments, null, ImmutableList.of(file));
+        task.setProcessors(ImmutableList.of(new CorsPolicyProcessor()));
+        return task.call();
+    }
+
+    private List<String> messages(Diagnostic.Kind kind) {
+        return diagnostics
+            .getDiagnostics()
+            .stream()
+            .filter(diagnostic -> diagnostic.getKind() == kind)
+            .map(diagnostic -> diagnostic.getMessage(null))
+            .collect(Collectors.toList());
+    }
+
+    private static ResourceMethod method(Resource resource, String httpMethod) {
+        return resource
+            .getAllMethods()
+            .stream()
+            .filter(method -> httpMethod.equals(method.getHttpMethod()))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+    }
+
+    @Test
+    public void testGeneratedRegistry() throws Exception {
+        File output = folder.newFolder();
+        assertThat(compile(output, "example.ExampleResource", RESOURCE)).isTrue();
+        assertThat(new File(output, "example/ExampleResource_CorsPolicies.java")).exists();
+        assertThat(new File(output, "example/ExampleResource__Child_CorsPolicies.java")).exists();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader())) {
+            // The outer class and its nested class
+            assertThat(GeneratedPolicyLoader.loadIndex(loader)).isEqualTo(2);
+            Class<?>              type     = loader.loadClass("example.ExampleResource");
+            GeneratedCorsPolicies registry = (GeneratedCorsPolicies) loader
+                .loadClass("example.ExampleResource_CorsPolicies")
+                .getConstructor()
+                .newInstance();
+            assertThat(registry.getMethodPolicy("get(java.lang.String[],int)").getExposeHeaders()).containsExactly("X-Request-Id");
+            assertThat(registry.getMethodPolicy("delete()")).isSameAs(CorsPolicy.EMPTY);
+            // Policies built from the generated registry are the same as those built by reading the annotations
+            Resource resource = Resource.from(type);
+            for (String httpMethod : new String[]{"GET", "PUT", "DELETE"}) {
+                ResourceMethod method    = method(resource, httpMethod);
+                CorsPolicy     generated = GeneratedPolicyLoader.find(method);
+                assertThat(generated).isNotNull().isEqualTo(CorsPolicy.fromAnnotations(method));
+                assertThat(CorsPolicy.of(method)).isEqualTo(generated);
+            }
+            assertThat(CorsPolicy.of(method(resource, "GET")).getMaxAgeValue()).isEqualTo("600");
+            assertThat(CorsPolicy.of(method(resource, "PUT")).isAllowCredentials()).isTrue();
+            assertThat(CorsPolicy.of(method(resource, "DELETE")).getAllowOriginValue("https://app.example.com"))
+                .isEqualTo("https://app.example.com");
+        }
+    }
+
+    @Test
+    public void testRegistryNames() {
+        assertThat(GeneratedCorsPolicies.registryName("example.Outer")).isEqualTo("example.Outer_CorsPolicies");
+        assertThat(GeneratedCorsPolicies.registryName("example.Outer$Inner")).isEqualTo("example.Outer__Inner_CorsPolicies");
+        // A top-level class whose name looks like that of a nested class
+        assertThat(GeneratedCorsPolicies.registryName("example.Outer_Inner")).isEqualTo("example.Outer_1Inner_CorsPolicies");
+        assertThat(GeneratedCorsPolicies.registryName("example.Outer__Inner")).isEqualTo("example.Outer_1_1Inner_CorsPolicies");
+        assertThat(GeneratedCorsPolicies.registryName("Outer")).isEqualTo("Outer_CorsPolicies");
+    }
+
+    @Test
+    public void testUnlistedRegistryIgnored() throws Exception {
+        File   output = folder.newFolder();
+        String source = RESOURCE.replace("ExampleResource", "UnlistedResource");
+        assertThat(compile(output, "example.UnlistedResource", source)).isTrue();
+        assertThat(new File(output, "example/UnlistedResource_CorsPolicies.class")).exists();
+        // Without the index, the class isn't looked up, even though its registry exists
+        assertThat(new File(output, GeneratedPolicyLoader.INDEX).delete()).isTrue();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader())) {
+            assertThat(GeneratedPolicyLoader.loadIndex(loader)).isZero();
+            Resource       resource = Resource.from(loader.loadClass("example.UnlistedResource"));
+            ResourceMethod get      = method(resource, "GET");
+            assertThat(GeneratedPolicyLoader.find(get)).isNull();
+            assertThat(CorsPolicy.of(get).getMaxAgeValue()).isEqualTo("600");
+        }
+    }
+
+    @Test
+    public void testNoRegistryFallsBackToAnnotations() {
+        // Classes in this project are compiled without the processor
+        Resource resource = Resource.from(CorsWarmUpTest.ChildResource.class);
+        assertThat(GeneratedPolicyLoader.find(resource.getResourceMethods().get(0))).isNull();
+        assertThat(CorsPolicy.of(resource.getResourceMethods().get(0)).getAllowOriginValue("https://child.example.com"))
+            .isEqualTo("https://child.example.com");
+    }
+
+    @Test
+    public void testWildcardWithCredentials() throws Exception {
+        String source = String.join(
+            "\n",
+            "package example;",
+            "import zone.dragon.dropwizard.cors.annotations.*;",
+            "@CorsAllowOrigins",
+            "public class Credentials {",
+            "    @CorsAllowCredentials",
+            "    public String get() { return \"get\"; }",
+            "}"
+        );
+        assertThat(compile(folder.newFolder(), "example.Credentials", source)).isTrue();
+        assertThat(messages(Diagnostic.Kind.WARNING)).contains(CREDENTIALS_MESSAGE);
+        String strict = "-A" + CorsPolicyProcessor.STRICT_OPTION + "=true";
+        assertThat(compile(folder.newFolder(), "example.Credentials", source, strict)).isFalse();
+        assertThat(messages(Diagnostic.Kind.ERROR)).contains(CREDENTIALS_MESSAGE);
+    }
+
+    @Test
+    public void testInvalidAnnotations() throws Exception {
+        String source = String.join(
+            "\n",
+            "package example;",
+            "import zone.dragon.dropwizard.cors.annotations.*;",
+            "public class Invalid {",
+            "    @CorsAllowOrigins(\"https://app.*.example.com\")",
+            "    @CorsAllowHeaders(\"Content Type\")",
+            "    @CorsMaxAge(-2)",
+            "    public String get() { return \"get\"; }",
+            "}"
+        );
+        assertThat(compile(folder.newFolder(), "example.Invalid", source)).isFalse();
+        assertThat(messages(Diagnostic.Kind.ERROR)).hasSize(3);
+    }
+}
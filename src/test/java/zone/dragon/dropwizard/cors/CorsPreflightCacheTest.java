@@ -0,0 +1,76 @@
+package zone.dragon.dropwizard.cors;
+
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CorsPreflightCacheTest {
+    @Path("someUri")
+    @CorsAllowOrigins("https://example.com")
+    @CorsAllowHeaders("Authorization")
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    private final Resource            resource        = Resource.from(TestResource.class);
+    private final CorsPreflightPolicy preflightPolicy = compile(resource);
+    private final CorsPolicy          requestedPolicy = preflightPolicy.getPolicy("GET");
+
+    private static CorsPreflightPolicy compile(Resource resource) {
+        CorsPolicyRegistry registry = new CorsPolicyRegistry();
+        registry.compile(new ResourceModel.Builder(false).addResource(resource).build());
+        return registry.getPreflightPolicy(Collections.emptyList(), resource);
+    }
+
+    @Test
+    public void testHit() {
+        CorsPreflightCache    cache  = CorsPreflightCache.of(10);
+        CorsPreflightResponse first  = cache.get(preflightPolicy, requestedPolicy, "https://example.com", "GET", "authorization");
+        CorsPreflightResponse second = cache.get(preflightPolicy, requestedPolicy, "https://example.com", "GET", "authorization");
+        assertThat(second).isSameAs(first);
+        assertThat(first.getAllowOriginValue()).isEqualTo("https://example.com");
+        assertThat(first.getAllowHeadersValue()).isEqualTo("Authorization");
+        assertThat(cache.getStats().hitCount()).isEqualTo(1);
+        assertThat(cache.getStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDistinctKeys() {
+        CorsPreflightCache    cache   = CorsPreflightCache.of(10);
+        CorsPreflightResponse allowed = cache.get(preflightPolicy, requestedPolicy, "https://example.com", "GET", null);
+        CorsPreflightResponse denied  = cache.get(preflightPolicy, requestedPolicy, "https://example.org", "GET", null);
+        assertThat(allowed.isAllowed()).isTrue();
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEviction() {
+        CorsPreflightCache cache = CorsPreflightCache.of(1);
+        for (int i = 0; i < 10; i++) {
+            cache.get(preflightPolicy, requestedPolicy, "https://" + i + ".example.com", "GET", null);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(1);
+        assertThat(cache.getStats().evictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testDisabled() {
+        CorsPreflightCache cache = CorsPreflightCache.of(0);
+        assertThat(cache.isEnabled()).isFalse();
+        cache.get(preflightPolicy, requestedPolicy, "https://example.com", "GET", null);
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getStats().requestCount()).isEqualTo(0);
+    }
+}
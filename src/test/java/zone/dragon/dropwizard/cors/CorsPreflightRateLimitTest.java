@@ -0,0 +1,67 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsPreflightRateLimitTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>().setPreflightRateLimit(0.001).setPreflightRateLimitBurst(2));
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins
+    public static class TestResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    private Response preflight(String origin) {
+        return client.path("someUri").request().header(HttpHeaders.ORIGIN, origin).header(REQUEST_METHOD, "GET").options();
+    }
+
+    @Test
+    public void testRateLimited() {
+        assertThat(preflight("https://example.com").getStatus()).isEqualTo(204);
+        assertThat(preflight("https://example.com").getStatus()).isEqualTo(204);
+        Response limited = preflight("https://example.com");
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(limited.getHeaderString(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(preflight("https://example.org").getStatus()).isEqualTo(204);
+        // Standard requests are never limited
+        assertThat(client.path("someUri").request().header(HttpHeaders.ORIGIN, "https://example.com").get().getStatus()).isEqualTo(200);
+    }
+}
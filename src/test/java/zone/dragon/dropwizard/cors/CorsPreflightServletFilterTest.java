@@ -0,0 +1,172 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowHeaders;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_METHODS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.MAX_AGE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.SEC_FETCH_MODE;
+
+public class CorsPreflightServletFilterTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>().setServletPreflightEnabled(true));
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+            environment.jersey().register(HealthResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins("https://example.com")
+    public static class TestResource {
+        @GET
+        @CorsMaxAge(100)
+        public String get() {
+            return "get";
+        }
+
+        @OPTIONS
+        public String options() {
+            return "jersey";
+        }
+
+        @PUT
+        @Path("{id}")
+        @CorsAllowHeaders("X-Test")
+        public String put(@PathParam("id") String id) {
+            return id;
+        }
+    }
+
+    @Path("someUri/health")
+    public static class HealthResource {
+        @GET
+        public String get() {
+            return "healthy";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testPreflightAnsweredByServletFilter() {
+        Response response = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(204);
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isEqualTo("https://example.com");
+        assertThat(response.getHeaderString(ALLOW_METHODS)).isEqualTo("GET, OPTIONS");
+        assertThat(response.getHeaderString(MAX_AGE)).isEqualTo("100");
+    }
+
+    @Test
+    public void testTemplatedPath() {
+        Response response = client
+            .path("someUri/123")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "PUT")
+            .header(REQUEST_HEADERS, "x-test")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(204);
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isEqualTo("https://example.com");
+        assertThat(response.getHeaderString(ALLOW_HEADERS)).isEqualTo("X-Test");
+    }
+
+    @Test
+    public void testLiteralNonCorsSiblingPassedToJersey() {
+        // someUri/health would match the template someUri/{id} of the CORS enabled resource
+        Response response = client
+            .path("someUri/health")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "PUT")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isNull();
+        assertThat(response.getHeaderString(ALLOW_METHODS)).isNull();
+    }
+
+    @Test
+    public void testDeniedOrigin() {
+        Response response = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.org")
+            .header(REQUEST_METHOD, "GET")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(204);
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isNull();
+    }
+
+    @Test
+    public void testEncodedPathMatchedUndecoded() {
+        // Decodes to someUri, but Jersey matches the encoded path, which no resource has
+        Response response = client
+            .path("some%55ri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options();
+        assertThat(response.getStatus()).isNotEqualTo(204);
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isNull();
+    }
+
+    @Test
+    public void testNavigationPassedToJersey() {
+        Response response = client
+            .path("someUri")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .header(SEC_FETCH_MODE, "navigate")
+            .options();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(String.class)).isEqualTo("jersey");
+        assertThat(response.getHeaderString(ALLOW_ORIGIN)).isNull();
+    }
+
+    @Test
+    public void testNonPreflightPassedToJersey() {
+        Response response = client.path("someUri").request().options();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(String.class)).isEqualTo("jersey");
+    }
+}
@@ -0,0 +1,125 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_CREDENTIALS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.MAX_AGE;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsResourceLocatorTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("someUri")
+    @CorsAllowOrigins
+    @CorsMaxAge(100)
+    public static class TestResource {
+        @Path("child")
+        @CorsAllowCredentials
+        public ChildResource getChild() {
+            return new ChildResource();
+        }
+
+        @Path("uncredentialed")
+        public ChildResource getUncredentialedChild() {
+            return new ChildResource();
+        }
+    }
+
+    public static class ChildResource {
+        @GET
+        public String get() {
+            return "get";
+        }
+
+        @PUT
+        @CorsMaxAge(200)
+        public String put() {
+            return "put";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    @Test
+    public void testInheritedFromLocator() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri/child")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("*");
+        assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isEqualTo("true");
+    }
+
+    @Test
+    public void testNotInheritedFromSiblingLocator() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri/uncredentialed")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .get()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(ALLOW_ORIGIN)).isEqualTo("*");
+        assertThat(stringHeaders.getFirst(ALLOW_CREDENTIALS)).isEqualTo(null);
+    }
+
+    @Test
+    public void testInheritedMaxAge() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri/child")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(MAX_AGE)).isEqualTo("100");
+    }
+
+    @Test
+    public void testClosestMaxAgeWins() {
+        MultivaluedMap<String, String> stringHeaders = client
+            .path("someUri/child")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "PUT")
+            .options()
+            .getStringHeaders();
+        assertThat(stringHeaders.getFirst(MAX_AGE)).isEqualTo("200");
+    }
+}
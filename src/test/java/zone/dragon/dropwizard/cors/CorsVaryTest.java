@@ -0,0 +1,131 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowCredentials;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class CorsVaryTest {
+    @ClassRule
+    public static final DropwizardAppRule<Configuration> APP_RULE = new DropwizardAppRule<>(TestApp.class, new Configuration());
+
+    static {
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+    }
+
+    public static class TestApp extends Application<Configuration> {
+        @Override
+        public void initialize(Bootstrap<Configuration> bootstrap) {
+            bootstrap.addBundle(new CorsBundle<>());
+        }
+
+        @Override
+        public void run(Configuration configuration, Environment environment) throws Exception {
+            environment.jersey().register(TestResource.class);
+        }
+    }
+
+    @Path("/")
+    public static class TestResource {
+        @GET
+        @Path("wildcard")
+        @CorsAllowOrigins
+        public String wildcard() {
+            return "wildcard";
+        }
+
+        @GET
+        @Path("credentials")
+        @CorsAllowOrigins
+        @CorsAllowCredentials
+        public String credentials() {
+            return "credentials";
+        }
+
+        @GET
+        @Path("origins")
+        @CorsAllowOrigins("https://example.com")
+        public Response origins() {
+            return Response.ok("origins").header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+
+        @GET
+        @Path("disabled")
+        public String disabled() {
+            return "disabled";
+        }
+    }
+
+    protected WebTarget client = APP_RULE.client().target(String.format("http://localhost:%d", APP_RULE.getLocalPort()));
+
+    private MultivaluedMap<String, String> get(String path) {
+        return client.path(path).request().header(HttpHeaders.ORIGIN, "https://example.com").get().getStringHeaders();
+    }
+
+    @Test
+    public void testWildcardOmitsOrigin() {
+        assertThat(get("wildcard").getFirst(HttpHeaders.VARY)).isNull();
+    }
+
+    @Test
+    public void testCredentialsVaryByOrigin() {
+        assertThat(get("credentials").getFirst(HttpHeaders.VARY)).isEqualTo("Origin");
+    }
+
+    @Test
+    public void testMergedWithExistingVary() {
+        assertThat(get("origins").getFirst(HttpHeaders.VARY)).isEqualTo("Accept-Encoding, Origin");
+    }
+
+    @Test
+    public void testDeniedOriginVaries() {
+        MultivaluedMap<String, String> headers = client
+            .path("credentials")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.org")
+            .get()
+            .getStringHeaders();
+        assertThat(headers.getFirst(HttpHeaders.VARY)).isEqualTo("Origin");
+    }
+
+    @Test
+    public void testDisabled() {
+        assertThat(get("disabled").getFirst(HttpHeaders.VARY)).isNull();
+    }
+
+    @Test
+    public void testPreflight() {
+        MultivaluedMap<String, String> wildcard = client
+            .path("wildcard")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(wildcard.getFirst(HttpHeaders.VARY)).isEqualTo("Access-Control-Request-Method, Access-Control-Request-Headers");
+        MultivaluedMap<String, String> credentials = client
+            .path("credentials")
+            .request()
+            .header(HttpHeaders.ORIGIN, "https://example.com")
+            .header(REQUEST_METHOD, "GET")
+            .options()
+            .getStringHeaders();
+        assertThat(credentials.getFirst(HttpHeaders.VARY)).isEqualTo(
+            "Origin, Access-Control-Request-Method, Access-Control-Request-Headers");
+    }
+}
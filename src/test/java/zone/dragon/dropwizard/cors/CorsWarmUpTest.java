@@ -0,0 +1,119 @@
+package zone.dragon.dropwizard.cors;
+
+import com.codahale.metrics.MetricRegistry;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+import zone.dragon.dropwizard.cors.annotations.CorsMaxAge;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CorsWarmUpTest {
+    @Path("root")
+    @CorsAllowOrigins("https://root.example.com")
+    public static class RootResource {
+        @GET
+        @Path("{id}")
+        @CorsMaxAge(60)
+        public String get(@PathParam("id") String id) {
+            return id;
+        }
+
+        @Path("child")
+        public ChildResource getChild() {
+            return new ChildResource();
+        }
+
+        @Path("dynamic")
+        public Object getDynamic() {
+            return new ChildResource();
+        }
+    }
+
+    @CorsAllowOrigins("https://child.example.com")
+    public static class ChildResource {
+        @GET
+        public String get() {
+            return "child";
+        }
+
+        @Path("grandchild")
+        public GrandchildResource getGrandchild() {
+            return new GrandchildResource();
+        }
+    }
+
+    public static class GrandchildResource {
+        @GET
+        @CorsMaxAge(600)
+        public Response get() {
+            return Response.ok().build();
+        }
+    }
+
+    private final ResourceModel resourceModel = new ResourceModel.Builder(false).addResource(Resource.from(RootResource.class)).build();
+
+    private CorsPolicyRegistry compile(int warmUpParallelism) {
+        CorsPolicyRegistry registry = new CorsPolicyRegistry(new CorsConfiguration(), warmUpParallelism);
+        registry.compile(resourceModel);
+        return registry;
+    }
+
+    /**
+     * Builds the method that Jersey would match after invoking a resource locator that returns a sub-resource of the given class
+     */
+    private static ResourceMethod runtimeMethod(Class<?> subResourceClass) {
+        return Resource.from(subResourceClass).getResourceMethods().get(0);
+    }
+
+    @Test
+    public void testSubResourcesPrecompiled() {
+        CorsPolicyRegistry registry = compile(4);
+        CorsPolicy         child    = registry.getPolicy(runtimeMethod(ChildResource.class));
+        assertThat(child.getAllowOriginValue("https://child.example.com")).isEqualTo("https://child.example.com");
+        // Every time Jersey matches a locator it may build a new model of the sub-resource, which resolves to the same compiled policy
+        assertThat(registry.getPolicy(runtimeMethod(ChildResource.class))).isSameAs(child);
+        assertThat(registry.getPolicy(runtimeMethod(GrandchildResource.class))).isSameAs(
+            registry.getPolicy(runtimeMethod(GrandchildResource.class))
+        );
+    }
+
+    @Test
+    public void testSameAsSequential() {
+        CorsPolicyRegistry sequential = compile(0);
+        CorsPolicyRegistry parallel   = compile(4);
+        for (Resource resource : resourceModel.getResources()) {
+            for (Resource child : resource.getChildResources()) {
+                for (ResourceMethod method : child.getAllMethods()) {
+                    CorsPolicy expected = sequential.getPolicy(method);
+                    CorsPolicy actual   = parallel.getPolicy(method);
+                    assertThat(actual.getAllowOriginValue("https://root.example.com"))
+                        .isEqualTo(expected.getAllowOriginValue("https://root.example.com"));
+                    assertThat(actual.getMaxAgeValue()).isEqualTo(expected.getMaxAgeValue());
+                }
+            }
+        }
+        ResourceMethod grandchild = runtimeMethod(GrandchildResource.class);
+        assertThat(parallel.getPolicy(grandchild).getMaxAgeValue()).isEqualTo(sequential.getPolicy(grandchild).getMaxAgeValue());
+    }
+
+    @Test
+    public void testMetrics() {
+        MetricRegistry     metrics  = new MetricRegistry();
+        CorsPolicyRegistry registry = new CorsPolicyRegistry(new CorsConfiguration(), 2);
+        registry.registerMetrics(metrics);
+        registry.compile(resourceModel);
+        assertThat(metrics.getTimers().get(MetricRegistry.name(CorsPolicyRegistry.class, "compile")).getCount()).isEqualTo(1);
+        // get, getChild, getDynamic
+        assertThat(metrics.getGauges().get(MetricRegistry.name(CorsPolicyRegistry.class, "policies")).getValue()).isEqualTo(3);
+        // ChildResource.get, ChildResource.getGrandchild, GrandchildResource.get; getDynamic can't be resolved before it is invoked
+        assertThat(metrics.getGauges().get(MetricRegistry.name(CorsPolicyRegistry.class, "subResourcePolicies")).getValue()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,231 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import lombok.Getter;
+import lombok.NonNull;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_CREDENTIALS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_METHODS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.ALLOW_ORIGIN;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.EXPOSE_HEADERS;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.MAX_AGE;
+
+/**
+ * A single request/response pair that can be run through {@link CorsResponseFilter} repeatedly; Jersey's own request and response
+ * implementations are used, and the matched resource is supplied both through the request's routing context and by a proxy that doesn't
+ * allocate when called. The proxy stands in for the injected {@code Provider<ExtendedUriInfo>}, and fails requests that can't be CORS
+ * requests, since those must not pay for an HK2 lookup. Headers added by the filter are removed after each run so that the response
+ * doesn't grow. Shared by the allocation budget tests and the benchmarks.
+ */
+public final class FilterFixture {
+    private static final URI BASE_URI = URI.create("http://localhost/");
+
+    private static final List<String> CORS_HEADERS = ImmutableList.of(
+        ALLOW_CREDENTIALS,
+        ALLOW_HEADERS,
+        ALLOW_METHODS,
+        ALLOW_ORIGIN,
+        EXPOSE_HEADERS,
+        MAX_AGE,
+        HttpHeaders.VARY
+    );
+
+    private final CorsResponseFilter filter;
+
+    @Getter
+    private final ContainerRequest request;
+
+    @Getter
+    private final ContainerResponse response;
+
+    private final List<String> recordedNames = new ArrayList<>();
+
+    private final List<Object> recordedValues = new ArrayList<>();
+
+    private FilterFixture(CorsResponseFilter filter, ContainerRequest request, ContainerResponse response) {
+        this.filter = filter;
+        this.request = request;
+        this.response = response;
+    }
+
+    /**
+     * Creates a fixture without a pre-flight cache
+     *
+     * @param registry
+     *     Registry with the compiled policies
+     * @param method
+     *     HTTP method of the request
+     * @param requestHeaders
+     *     Request headers
+     * @param responseHeaders
+     *     Headers already present on the response before the filter runs
+     * @param locators
+     *     Matched resource locators, closest first
+     * @param resourceMethod
+     *     Matched resource method
+     * @param resource
+     *     Matched resource
+     *
+     * @return Fixture for the request
+     */
+    public static FilterFixture of(
+        @NonNull CorsPolicyRegistry registry,
+        @NonNull String method,
+        @NonNull Map<String, String> requestHeaders,
+        @NonNull Map<String, String> responseHeaders,
+        @NonNull List<ResourceMethod> locators,
+        @NonNull ResourceMethod resourceMethod,
+        @NonNull Resource resource
+    ) {
+        return of(registry, CorsPreflightCache.disabled(), method, requestHeaders, responseHeaders, locators, resourceMethod, resource);
+    }
+
+    /**
+     * Creates a fixture
+     *
+     * @param registry
+     *     Registry with the compiled policies
+     * @param preflightCache
+     *     Cache of rendered pre-flight responses
+     * @param method
+     *     HTTP method of the request
+     * @param requestHeaders
+     *     Request headers
+     * @param responseHeaders
+     *     Headers already present on the response before the filter runs
+     * @param locators
+     *     Matched resource locators, closest first
+     * @param resourceMethod
+     *     Matched resource method
+     * @param resource
+     *     Matched resource
+     *
+     * @return Fixture for the request
+     */
+    public static FilterFixture of(
+        @NonNull CorsPolicyRegistry registry,
+        @NonNull CorsPreflightCache preflightCache,
+        @NonNull String method,
+        @NonNull Map<String, String> requestHeaders,
+        @NonNull Map<String, String> responseHeaders,
+        @NonNull List<ResourceMethod> locators,
+        @NonNull ResourceMethod resourceMethod,
+        @NonNull Resource resource
+    ) {
+        ContainerRequest request = new ContainerRequest(
+            BASE_URI,
+            BASE_URI.resolve(resource.getPath() == null ? "" : resource.getPath()),
+            method,
+            null,
+            new MapPropertiesDelegate()
+        );
+        requestHeaders.forEach(request::header);
+        // Requests that can't be CORS requests only read the matched method from the request's own routing context
+        request.getUriRoutingContext().setMatchedResourceMethod(resourceMethod);
+        for (int i = locators.size() - 1; i >= 0; i--) {
+            request.getUriRoutingContext().pushMatchedLocator(locators.get(i));
+        }
+        Response.ResponseBuilder builder = Response.ok();
+        responseHeaders.forEach(builder::header);
+        ContainerResponse response = new ContainerResponse(request, builder.build());
+        ExtendedUriInfo uriInfo = (ExtendedUriInfo) Proxy.newProxyInstance(
+            ExtendedUriInfo.class.getClassLoader(),
+            new Class<?>[]{ExtendedUriInfo.class},
+            (proxy, invokedMethod, args) -> {
+                switch (invokedMethod.getName()) {
+                    case "getMatchedResourceMethod":
+                        return resourceMethod;
+                    case "getMatchedResourceLocators":
+                        return locators;
+                    case "getMatchedModelResource":
+                        return resource;
+                    default:
+                        throw new UnsupportedOperationException(invokedMethod.getName());
+                }
+            }
+        );
+        CorsResponseFilter filter = new CorsResponseFilter(
+            () -> {
+                if (CorsResponseFilter.getCrossOrigin(request.getHeaders()) == null) {
+                    throw new IllegalStateException("Request that can't be a CORS request looked up the matched resource through HK2");
+                }
+                return uriInfo;
+            },
+            registry,
+            CorsMetrics.disabled(),
+            preflightCache,
+            CorsOriginResolvers.EMPTY
+        );
+        return new FilterFixture(filter, request, response);
+    }
+
+    /**
+     * Runs the request through the filter and then removes any CORS headers it added
+     *
+     * @return Number of response headers after the filter ran, for the benchmark to consume
+     */
+    public int run() throws IOException {
+        filter.filter(request, response);
+        return removeCorsHeaders();
+    }
+
+    /**
+     * Runs the request through the filter once and records the CORS headers it added, so that {@link #replay()} can add them again
+     */
+    public void record() throws IOException {
+        recordedNames.clear();
+        recordedValues.clear();
+        filter.filter(request, response);
+        MultivaluedMap<String, Object> headers = response.getHeaders();
+        for (String name : CORS_HEADERS) {
+            List<Object> values = headers.get(name);
+            if (values != null) {
+                for (Object value : values) {
+                    recordedNames.add(name);
+                    recordedValues.add(value);
+                }
+            }
+        }
+        removeCorsHeaders();
+    }
+
+    /**
+     * Adds the headers captured by {@link #record()} and removes them again, without running the filter; This allocates what Jersey's
+     * header map allocates during {@link #run()}, so the difference between the two is what the filter itself allocates
+     *
+     * @return Number of response headers after the recorded headers were added, for the caller to consume
+     */
+    public int replay() {
+        MultivaluedMap<String, Object> headers = response.getHeaders();
+        for (int i = 0; i < recordedNames.size(); i++) {
+            headers.add(recordedNames.get(i), recordedValues.get(i));
+        }
+        return removeCorsHeaders();
+    }
+
+    private int removeCorsHeaders() {
+        MultivaluedMap<String, Object> headers = response.getHeaders();
+        int                            size    = headers.size();
+        for (int i = 0; i < CORS_HEADERS.size(); i++) {
+            headers.remove(CORS_HEADERS.get(i));
+        }
+        return size;
+    }
+}
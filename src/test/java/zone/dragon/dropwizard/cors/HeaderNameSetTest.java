@@ -0,0 +1,41 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.HeaderNameSet.Match.ALL;
+import static zone.dragon.dropwizard.cors.HeaderNameSet.Match.NONE;
+import static zone.dragon.dropwizard.cors.HeaderNameSet.Match.SOME;
+
+public class HeaderNameSetTest {
+    private final HeaderNameSet headers = HeaderNameSet.of(ImmutableList.of("X-Request-Id", "Authorization", "x-request-id"));
+
+    @Test
+    public void testDuplicatesIgnoringCase() {
+        assertThat(headers.getNames()).containsExactly("X-Request-Id", "Authorization");
+        assertThat(headers.getValue()).isEqualTo("X-Request-Id, Authorization");
+    }
+
+    @Test
+    public void testContainsIgnoringCase() {
+        assertThat(headers.contains("x-request-id")).isTrue();
+        assertThat(headers.contains("AUTHORIZATION")).isTrue();
+        assertThat(headers.contains("X-Request")).isFalse();
+    }
+
+    @Test
+    public void testMatch() {
+        assertThat(headers.match("authorization,x-request-id")).isEqualTo(ALL);
+        assertThat(headers.match(" Authorization ,\tX-Request-Id , ")).isEqualTo(ALL);
+        assertThat(headers.match("authorization, content-type")).isEqualTo(SOME);
+        assertThat(headers.match("content-type")).isEqualTo(NONE);
+        assertThat(headers.match(" , ")).isEqualTo(NONE);
+    }
+
+    @Test
+    public void testRetain() {
+        assertThat(headers.retain("content-type, authorization, AUTHORIZATION")).isEqualTo("Authorization");
+        assertThat(headers.retain("content-type")).isNull();
+    }
+}
@@ -0,0 +1,137 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.junit.Test;
+import zone.dragon.dropwizard.cors.annotations.CorsAllowOrigins;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zone.dragon.dropwizard.cors.CorsResponseFilter.REQUEST_METHOD;
+
+public class LocatorChainMemoTest {
+    @Path("root")
+    public static class RootResource {
+        @Path("first")
+        @CorsAllowOrigins("https://first.example.com")
+        public ChildResource getFirst() {
+            return new ChildResource();
+        }
+
+        @Path("second")
+        public ChildResource getSecond() {
+            return new ChildResource();
+        }
+    }
+
+    public static class ChildResource {
+        @GET
+        public String get() {
+            return "child";
+        }
+    }
+
+    private final Resource       root   = Resource.from(RootResource.class);
+    private final ResourceMethod first  = locator("first");
+    private final ResourceMethod second = locator("second");
+    private final ResourceMethod target = Resource.from(ChildResource.class).getResourceMethods().get(0);
+
+    private ResourceMethod locator(String path) {
+        return root
+            .getChildResources()
+            .stream()
+            .filter(child -> child.getPath().equals(path))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new)
+            .getResourceLocator();
+    }
+
+    @Test
+    public void testHit() {
+        LocatorChainMemo<ResourceMethod, String> memo = new LocatorChainMemo<>(16);
+        memo.put(ImmutableList.of(first, second), target, "value");
+        // Jersey passes its own list of matched locators, so equal chains are found regardless of the list instance
+        assertThat(memo.get(new ArrayList<>(ImmutableList.of(first, second)), target)).isEqualTo("value");
+    }
+
+    @Test
+    public void testMiss() {
+        LocatorChainMemo<ResourceMethod, String> memo = new LocatorChainMemo<>(16);
+        memo.put(ImmutableList.of(first, second), target, "value");
+        assertThat(memo.get(ImmutableList.of(second, first), target)).isNull();
+        assertThat(memo.get(ImmutableList.of(first), target)).isNull();
+        assertThat(memo.get(ImmutableList.of(first, second), first)).isNull();
+    }
+
+    @Test
+    public void testBounded() {
+        LocatorChainMemo<ResourceMethod, String> memo = new LocatorChainMemo<>(1);
+        memo.put(ImmutableList.of(first), target, "first");
+        memo.put(ImmutableList.of(second), target, "second");
+        memo.put(ImmutableList.of(first, second), target, "both");
+        // Three chains can't all fit in two slots, but the most recent one is always held
+        assertThat(memo.get(ImmutableList.of(first, second), target)).isEqualTo("both");
+    }
+
+    @Test
+    public void testSnapshotMemoizesMergedPolicy() {
+        CorsPolicyRegistry registry = new CorsPolicyRegistry();
+        registry.compile(new ResourceModel.Builder(false).addResource(root).build());
+        CorsPolicy policy = registry.getPolicy(ImmutableList.of(first), target);
+        assertThat(policy.getAllowOriginValue("https://first.example.com")).isEqualTo("https://first.example.com");
+        assertThat(registry.getPolicy(new ArrayList<>(ImmutableList.of(first)), target)).isSameAs(policy);
+        assertThat(registry.getPolicy(ImmutableList.of(second), target)).isNotSameAs(policy);
+        assertThat(registry.getPolicy(Collections.emptyList(), target)).isNotSameAs(policy);
+    }
+
+    @Test
+    public void testFindPreflightPolicy() {
+        CorsPolicyRegistry registry = new CorsPolicyRegistry();
+        registry.compile(new ResourceModel.Builder(false).addResource(root).build());
+        Resource child = Resource.from(ChildResource.class);
+        assertThat(registry.findPreflightPolicy(ImmutableList.of(first), child)).isNull();
+        CorsPreflightPolicy policy = registry.getPreflightPolicy(ImmutableList.of(first), child);
+        assertThat(registry.findPreflightPolicy(ImmutableList.of(first), child)).isSameAs(policy);
+        // Jersey builds a new model for each Resource returned by a locator, which has never been seen before
+        assertThat(registry.findPreflightPolicy(ImmutableList.of(first), Resource.from(ChildResource.class))).isNull();
+    }
+
+    @Test
+    public void testPreflightCacheOnlyHoldsRepeatedChains() throws IOException {
+        CorsPolicyRegistry registry = new CorsPolicyRegistry();
+        registry.compile(new ResourceModel.Builder(false).addResource(root).build());
+        CorsPreflightCache preflightCache = CorsPreflightCache.of(100);
+        for (int i = 0; i < 10; i++) {
+            preflight(registry, preflightCache, Resource.from(ChildResource.class)).run();
+        }
+        assertThat(preflightCache.size()).isZero();
+        FilterFixture repeated = preflight(registry, preflightCache, Resource.from(ChildResource.class));
+        for (int i = 0; i < 10; i++) {
+            repeated.run();
+        }
+        assertThat(preflightCache.size()).isEqualTo(1);
+    }
+
+    private FilterFixture preflight(CorsPolicyRegistry registry, CorsPreflightCache preflightCache, Resource child) {
+        return FilterFixture.of(
+            registry,
+            preflightCache,
+            HttpMethod.OPTIONS,
+            ImmutableMap.of(HttpHeaders.ORIGIN, "https://first.example.com", REQUEST_METHOD, HttpMethod.GET),
+            ImmutableMap.of(),
+            ImmutableList.of(first),
+            child.getResourceMethods().get(0),
+            child
+        );
+    }
+}
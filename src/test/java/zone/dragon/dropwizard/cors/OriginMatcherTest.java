@@ -0,0 +1,68 @@
+package zone.dragon.dropwizard.cors;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OriginMatcherTest {
+    @Test
+    public void testExactOrigins() {
+        OriginMatcher matcher = OriginMatcher.of(ImmutableList.of("https://example.com", "HTTP://Example.org:80"));
+        assertThat(matcher.matches("https://example.com")).isTrue();
+        assertThat(matcher.matches("https://EXAMPLE.com:443")).isTrue();
+        assertThat(matcher.matches("http://example.org")).isTrue();
+        assertThat(matcher.matches("http://example.com")).isFalse();
+        assertThat(matcher.matches("https://example.com:8443")).isFalse();
+        assertThat(matcher.matches(null)).isFalse();
+    }
+
+    @Test
+    public void testWildcard() {
+        OriginMatcher matcher = OriginMatcher.of(ImmutableList.of("https://example.com", "*"));
+        assertThat(matcher.isWildcard()).isTrue();
+        assertThat(matcher.matches("http://anything.net")).isTrue();
+    }
+
+    @Test
+    public void testListed() {
+        OriginMatcher matcher = OriginMatcher.of(ImmutableList.of("*", "https://app.example.com", "https://*.example.org"));
+        assertThat(matcher.isListed("HTTPS://App.Example.com:443")).isTrue();
+        assertThat(matcher.isListed("https://other.example.com")).isFalse();
+        assertThat(matcher.isListed("https://a.example.org")).isFalse();
+        assertThat(matcher.isListed(null)).isFalse();
+    }
+
+    @Test
+    public void testSubdomainPatterns() {
+        OriginMatcher matcher = OriginMatcher.of(ImmutableList.of("https://*.example.com", "http://*.example.com:8080", "https://app.example.org"));
+        assertThat(matcher.matches("https://a.example.com")).isTrue();
+        assertThat(matcher.matches("https://a.b.example.com")).isTrue();
+        assertThat(matcher.matches("https://A.Example.com:443")).isTrue();
+        assertThat(matcher.matches("http://a.example.com:8080")).isTrue();
+        assertThat(matcher.matches("https://example.com")).isFalse();
+        assertThat(matcher.matches("https://aexample.com")).isFalse();
+        assertThat(matcher.matches("http://a.example.com")).isFalse();
+        assertThat(matcher.matches("https://a.example.com.evil.net")).isFalse();
+        assertThat(matcher.matches("https://app.example.org")).isTrue();
+    }
+
+    @Test
+    public void testManyPatterns() {
+        ImmutableList.Builder<String> patterns = ImmutableList.builder();
+        for (int i = 0; i < 5000; i++) {
+            patterns.add(String.format("https://*.tenant%d.example.com", i));
+        }
+        OriginMatcher matcher = OriginMatcher.of(patterns.build());
+        assertThat(matcher.matches("https://app.tenant0.example.com")).isTrue();
+        assertThat(matcher.matches("https://app.tenant4999.example.com")).isTrue();
+        assertThat(matcher.matches("https://app.tenant5000.example.com")).isFalse();
+    }
+
+    @Test
+    public void testInvalidPattern() {
+        assertThatThrownBy(() -> OriginMatcher.of(ImmutableList.of("https://app.*.example.com"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OriginMatcher.of(ImmutableList.of("*.example.com"))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package zone.dragon.dropwizard.cors;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreflightRateLimiterTest {
+    @Test
+    public void testBurstThenLimited() {
+        PreflightRateLimiter limiter = new PreflightRateLimiter(0.001, 3, 16);
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isFalse();
+        assertThat(limiter.tryAcquire("https://example.org")).isTrue();
+    }
+
+    @Test
+    public void testRefill() throws InterruptedException {
+        PreflightRateLimiter limiter = new PreflightRateLimiter(100, 1, 16);
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isFalse();
+        Thread.sleep(50);
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+    }
+
+    @Test
+    public void testBoundedOrigins() {
+        PreflightRateLimiter limiter = new PreflightRateLimiter(0.001, 1, 4);
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryAcquire("https://" + i + ".example.com")).isTrue();
+        }
+    }
+
+    @Test
+    public void testEvictedOriginKeepsBucket() {
+        PreflightRateLimiter limiter = new PreflightRateLimiter(0.001, 3, 4);
+        for (char host = 'a'; host <= 'd'; host++) {
+            assertThat(limiter.tryAcquire("https://" + host + ".example.com")).isTrue();
+        }
+        // Pushes out a.example.com, which then pushes out b.example.com when it comes back, with the two permits it had left
+        assertThat(limiter.tryAcquire("https://e.example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://a.example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://a.example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://a.example.com")).isFalse();
+    }
+
+    @Test
+    public void testFloodDoesNotStarveOrigins() {
+        PreflightRateLimiter limiter = new PreflightRateLimiter(0.001, 3, 4);
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("https://" + i + ".example.org");
+        }
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com")).isFalse();
+    }
+
+    @Test
+    public void testOriginsNormalized() {
+        PreflightRateLimiter limiter = new PreflightRateLimiter(0.001, 3, 16);
+        assertThat(limiter.tryAcquire("https://example.com")).isTrue();
+        assertThat(limiter.tryAcquire("HTTPS://Example.com")).isTrue();
+        assertThat(limiter.tryAcquire("https://example.com:443")).isTrue();
+        assertThat(limiter.tryAcquire("https://EXAMPLE.com:443")).isFalse();
+    }
+
+    @Test
+    public void testRetryAfter() {
+        assertThat(new PreflightRateLimiter(10, 1, 16).getRetryAfterValue()).isEqualTo("1");
+        assertThat(new PreflightRateLimiter(0.25, 1, 16).getRetryAfterValue()).isEqualTo("4");
+    }
+}